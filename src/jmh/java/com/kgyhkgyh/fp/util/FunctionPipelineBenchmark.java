@@ -0,0 +1,169 @@
+package com.kgyhkgyh.fp.util;
+
+import io.vavr.Function1;
+import io.vavr.Function2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 嵌套andThen、按循环展平的管道与{@link FunctionPipeline}编译结果的对比，以及柯里化改为直接lambda前后的对比
+ * mega*：PIPELINES条由不同阶段组成的管道轮流经过同一个调用点，对应热点循环中执行多种管道的场景
+ * mono*：只有一条管道，所有调用点都是单态的
+ * 循环展平与旧的柯里化按原来的实现在本类中复刻
+ * mvn -Pjmh compile exec:exec -Djmh.args="FunctionPipelineBenchmark -prof gc"
+ *
+ * @author chen yi (zack)
+ * @date 2023/10/26
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionPipelineBenchmark {
+
+    private static final int PIPELINES = 16;
+
+    private static final int STAGES = 5;
+
+    private int input;
+
+    private Integer tenant;
+
+    private Function2<Integer, Integer, Integer> add;
+
+    private Function1<Integer, Integer>[] andThenFns;
+
+    private Function1<Integer, Integer>[] loopFns;
+
+    private Function1<Integer, Integer>[] pipelineFns;
+
+    private Function1<Integer, Integer> curriedFn;
+
+    private Function1<Integer, Integer> lambdaFn;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        input = 42;
+        tenant = 7;
+        add = Integer::sum;
+        // 每个lambda都是独立的类，不同管道按不同的顺序组合它们
+        Function1<Integer, Integer>[] stages = new Function1[]{
+                (Function1<Integer, Integer>) i -> i + 1,
+                (Function1<Integer, Integer>) i -> i * 3,
+                (Function1<Integer, Integer>) i -> i ^ 0x55,
+                (Function1<Integer, Integer>) i -> i - 5,
+                (Function1<Integer, Integer>) i -> i >>> 1,
+                (Function1<Integer, Integer>) i -> i | 0x10,
+                (Function1<Integer, Integer>) i -> i & 0xFFFF,
+                (Function1<Integer, Integer>) i -> i + 17,
+                (Function1<Integer, Integer>) i -> Integer.rotateLeft(i, 3),
+                (Function1<Integer, Integer>) i -> i % 1000
+        };
+        andThenFns = new Function1[PIPELINES];
+        loopFns = new Function1[PIPELINES];
+        pipelineFns = new Function1[PIPELINES];
+        for (int p = 0; p < PIPELINES; p++) {
+            Function1<Integer, Integer>[] chosen = new Function1[STAGES];
+            for (int s = 0; s < STAGES; s++) {
+                chosen[s] = stages[(p * 3 + s * (p % 4 + 1)) % stages.length];
+            }
+            Function1<Integer, Integer> andThen = chosen[0];
+            FunctionPipeline<Integer, Integer> pipeline = FunctionUtil.<Integer>pipeline().then(chosen[0]);
+            for (int s = 1; s < STAGES; s++) {
+                andThen = andThen.andThen(chosen[s]);
+                pipeline = pipeline.then(chosen[s]);
+            }
+            andThenFns[p] = andThen;
+            loopFns[p] = loop(chosen);
+            pipelineFns[p] = pipeline.compile();
+        }
+        curriedFn = curried(add, tenant);
+        lambdaFn = FunctionUtil.curry(add, tenant);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINES)
+    public int megaAndThen() {
+        return run(andThenFns);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINES)
+    public int megaLoop() {
+        return run(loopFns);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINES)
+    public int megaPipeline() {
+        return run(pipelineFns);
+    }
+
+    @Benchmark
+    public Integer monoAndThen() {
+        return andThenFns[0].apply(input);
+    }
+
+    @Benchmark
+    public Integer monoPipeline() {
+        return pipelineFns[0].apply(input);
+    }
+
+    @Benchmark
+    public Integer curriedApply() {
+        return curriedFn.apply(input);
+    }
+
+    @Benchmark
+    public Integer lambdaApply() {
+        return lambdaFn.apply(input);
+    }
+
+    @Benchmark
+    public Integer curriedBuildAndApply() {
+        return curried(add, tenant).apply(input);
+    }
+
+    @Benchmark
+    public Integer lambdaBuildAndApply() {
+        return FunctionUtil.curry(add, tenant).apply(input);
+    }
+
+    private int run(Function1<Integer, Integer>[] fns) {
+        int sum = 0;
+        for (Function1<Integer, Integer> fn : fns) {
+            sum += fn.apply(input);
+        }
+        return sum;
+    }
+
+    private static Function1<Integer, Integer> loop(Function1<Integer, Integer>[] stages) {
+        Function1<Integer, Integer>[] array = stages.clone();
+        return t -> {
+            Integer value = t;
+            for (Function1<Integer, Integer> stage : array) {
+                value = stage.apply(value);
+            }
+            return value;
+        };
+    }
+
+    private static <T1, T2, R> Function1<T2, R> curried(Function2<T1, T2, R> fn, T1 value) {
+        return Function2.of(fn).curried().apply(value);
+    }
+
+}
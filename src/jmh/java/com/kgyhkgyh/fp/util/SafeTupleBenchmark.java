@@ -0,0 +1,62 @@
+package com.kgyhkgyh.fp.util;
+
+import io.vavr.Function1;
+import io.vavr.control.Option;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 分拆/映射/合并链路的对比：{@link TupleUtil}的Tuple2<Option...>与{@link SafeTuple2}
+ * 分配量使用 -prof gc 查看（gc.alloc.rate.norm）
+ * mvn -Pjmh compile exec:exec -Djmh.args="SafeTupleBenchmark -prof gc"
+ *
+ * @author kgyhkgyh
+ * @version SafeTupleBenchmark.java, v 0.1 2023年10月26日 10:00 kgyhkgyh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SafeTupleBenchmark {
+
+	private String input;
+
+	private Function<String, Option<Integer>> vavrTupleFn;
+
+	private Function1<String, Option<Integer>> safeTupleFn;
+
+	@Setup
+	public void setUp() {
+		input = "kgyhkgyh";
+		vavrTupleFn = TupleUtil.<String, Integer, Character>toTuple(String::length, s -> s.charAt(0))
+				.andThen(TupleUtil.<Integer, Character, Integer, Character>tupleMap(length -> length * 2, Character::toUpperCase))
+				.andThen(TupleUtil.<Integer, Character, Integer>tupleMerge((length, c) -> length + c));
+		safeTupleFn = TupleUtil.<String, Integer, Character>toSafeTuple(String::length, s -> s.charAt(0))
+				.andThen(TupleUtil.<Integer, Character, Integer, Character>safeTupleMap(length -> length * 2, Character::toUpperCase))
+				.andThen(TupleUtil.<Integer, Character, Integer>safeTupleMerge((length, c) -> length + c));
+	}
+
+	@Benchmark
+	public Option<Integer> vavrTuple() {
+		return vavrTupleFn.apply(input);
+	}
+
+	@Benchmark
+	public Option<Integer> safeTuple() {
+		return safeTupleFn.apply(input);
+	}
+
+}
@@ -0,0 +1,117 @@
+package com.kgyhkgyh.fp.util;
+
+import io.vavr.Function1;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link TryUtil#objFnTry(Function1, BiConsumer)}与{@link TryUtil#objFnTryOrDefault(Function1, Object, BiConsumer)}
+ * 改为try/catch前后的对比，旧实现按原来的Try链路在本类中复刻
+ * 失败路径抛出共享的无栈异常，只比较包装本身的开销
+ * 分配量使用 -prof gc 查看（gc.alloc.rate.norm）
+ * mvn -Pjmh compile exec:exec -Djmh.args="TryUtilBenchmark -prof gc"
+ *
+ * @author kgyhkgyh
+ * @version TryUtilBenchmark.java, v 0.1 2023年10月26日 14:00 kgyhkgyh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TryUtilBenchmark {
+
+	private static final ControlFlowException FAILURE = TryUtil.sharedStackless("benchmark failure");
+
+	private String success;
+
+	private String failure;
+
+	private Function1<String, Option<Integer>> tryChainFn;
+
+	private Function1<String, Option<Integer>> tryCatchFn;
+
+	private Function1<String, Integer> tryChainOrDefaultFn;
+
+	private Function1<String, Integer> tryCatchOrDefaultFn;
+
+	@Setup
+	public void setUp() {
+		success = "kgyhkgyh";
+		failure = "";
+		Function1<String, Integer> func = s -> {
+			if (s.isEmpty()) {
+				throw FAILURE;
+			}
+			return s.length();
+		};
+		BiConsumer<String, Throwable> cn = (s, throwable) -> {
+		};
+		tryChainFn = tryChain(func, cn);
+		tryCatchFn = TryUtil.objFnTry(func, cn);
+		tryChainOrDefaultFn = tryChainOrDefault(func, -1, cn);
+		tryCatchOrDefaultFn = TryUtil.objFnTryOrDefault(func, -1, cn);
+	}
+
+	@Benchmark
+	public Option<Integer> tryChainSuccess() {
+		return tryChainFn.apply(success);
+	}
+
+	@Benchmark
+	public Option<Integer> tryCatchSuccess() {
+		return tryCatchFn.apply(success);
+	}
+
+	@Benchmark
+	public Option<Integer> tryChainFailure() {
+		return tryChainFn.apply(failure);
+	}
+
+	@Benchmark
+	public Option<Integer> tryCatchFailure() {
+		return tryCatchFn.apply(failure);
+	}
+
+	@Benchmark
+	public void tryChainOrDefault(Blackhole blackhole) {
+		blackhole.consume(tryChainOrDefaultFn.apply(success));
+		blackhole.consume(tryChainOrDefaultFn.apply(failure));
+	}
+
+	@Benchmark
+	public void tryCatchOrDefault(Blackhole blackhole) {
+		blackhole.consume(tryCatchOrDefaultFn.apply(success));
+		blackhole.consume(tryCatchOrDefaultFn.apply(failure));
+	}
+
+	private static <T, R> Function1<T, Option<R>> tryChain(Function1<T, R> func, BiConsumer<T, Throwable> cn) {
+		return t -> Try.success(t)
+					   .map(func)
+					   .onFailure(throwable -> cn.accept(t, throwable))
+					   .toOption();
+	}
+
+	private static <T, R> Function1<T, R> tryChainOrDefault(Function1<T, R> func, R defaultValue, BiConsumer<T, Throwable> cn) {
+		return t -> Try.success(t)
+					   .map(func)
+					   .onFailure(throwable -> cn.accept(t, throwable))
+					   .getOrElse(defaultValue);
+	}
+
+}
@@ -0,0 +1,216 @@
+package com.kgyhkgyh.fp.util;
+
+import io.vavr.Function1;
+import io.vavr.control.Option;
+import lombok.SneakyThrows;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把批量查询函数适配为按单个key查询的Function1，window时间内或者凑满maxBatchSize个key的调用会合并成一次批量查询
+ * 同一批次中相同的key只查询一次；批量结果中没有的key返回none，批量查询抛出的异常会原样抛给这一批次的所有调用方
+ * 阻塞的{@link #apply}每次都要等待所在批次完成，同一个线程逐个调用时每个key都会单独等待window，合并只发生在不同线程的并发调用之间
+ * 处理列表时使用{@link #listFn()}代替{@link ListUtil#javaListMap}，先提交列表中所有的key再统一等待
+ * 不要使用{@link ListUtil#parallelJavaListMap}，较短的列表会在调用线程上顺序执行，得不到合并
+ * 调度器拒绝窗口定时任务时，批次会立即提交，不会让调用方一直等待
+ * 加载器持有调度器、执行器与在途的批次，不支持序列化
+ * Demo:
+ * BatchLoader<Long, User> loader = BatchLoader.of(userDao::findByIds, 100, Duration.ofMillis(5));
+ * loader.listFn().apply(ids)
+ *
+ * @author kgyhkgyh
+ * @version BatchLoader.java, v 0.1 2023年10月23日 11:30 kgyhkgyh
+ */
+public final class BatchLoader<K, V> implements Function1<K, Option<V>> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final ScheduledExecutorService DEFAULT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "batch-loader-scheduler");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final transient Function1<List<K>, Map<K, V>> bulkFn;
+
+	private final int maxBatchSize;
+
+	private final long windowNanos;
+
+	private final transient ScheduledExecutorService scheduler;
+
+	private final transient Executor executor;
+
+	private final transient Object lock = new Object();
+
+	private transient Map<K, CompletableFuture<Option<V>>> pending;
+
+	private BatchLoader(Function1<List<K>, Map<K, V>> bulkFn, int maxBatchSize, Duration window, ScheduledExecutorService scheduler, Executor executor) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("maxBatchSize must be positive");
+		}
+		this.bulkFn = bulkFn;
+		this.maxBatchSize = maxBatchSize;
+		this.windowNanos = window.toNanos();
+		this.scheduler = scheduler;
+		this.executor = executor;
+	}
+
+	/**
+	 * 创建批量加载器，批量查询在默认执行器上执行
+	 *
+	 * @param bulkFn       批量查询函数
+	 * @param maxBatchSize 每批最多的key数量
+	 * @param window       收集同一批次的最长时间
+	 * @return
+	 */
+	public static <K, V> BatchLoader<K, V> of(Function1<List<K>, Map<K, V>> bulkFn, int maxBatchSize, Duration window) {
+		return new BatchLoader<>(bulkFn, maxBatchSize, window, DEFAULT_SCHEDULER, ExecutorUtil.defaultExecutor());
+	}
+
+	/**
+	 * 创建批量加载器，使用scheduler触发窗口到期，批量查询在executor上执行
+	 *
+	 * @param bulkFn
+	 * @param maxBatchSize
+	 * @param window
+	 * @param scheduler
+	 * @param executor
+	 * @return
+	 */
+	public static <K, V> BatchLoader<K, V> of(Function1<List<K>, Map<K, V>> bulkFn, int maxBatchSize, Duration window,
+											  ScheduledExecutorService scheduler, Executor executor) {
+		return new BatchLoader<>(bulkFn, maxBatchSize, window, scheduler, executor);
+	}
+
+	/**
+	 * 查询单个key，阻塞直到所在批次完成
+	 *
+	 * @param key
+	 * @return
+	 */
+	@Override
+	public Option<V> apply(K key) {
+		return await(load(key));
+	}
+
+	/**
+	 * 异步查询单个key，null key直接返回none
+	 *
+	 * @param key
+	 * @return
+	 */
+	public CompletableFuture<Option<V>> load(K key) {
+		if (key == null) {
+			return CompletableFuture.completedFuture(Option.none());
+		}
+		Map<K, CompletableFuture<Option<V>>> full = null;
+		CompletableFuture<Option<V>> future;
+		synchronized (lock) {
+			Map<K, CompletableFuture<Option<V>>> batch = pending;
+			if (batch == null) {
+				batch = new LinkedHashMap<>();
+				pending = schedule(batch) ? batch : null;
+			}
+			future = batch.computeIfAbsent(key, k -> new CompletableFuture<>());
+			// 没有定时器的批次（调度器拒绝）或者已经凑满的批次立即提交
+			if (pending != batch || batch.size() >= maxBatchSize) {
+				full = batch;
+				pending = null;
+			}
+		}
+		if (full != null) {
+			submit(full);
+		}
+		return future;
+	}
+
+	/**
+	 * 按列表查询的函数，先提交列表中所有的key再统一等待，结果与输入一一对应
+	 *
+	 * @return
+	 */
+	public Function1<List<K>, List<Option<V>>> listFn() {
+		return keys -> {
+			List<CompletableFuture<Option<V>>> futures = new ArrayList<>(keys.size());
+			for (K key : keys) {
+				futures.add(load(key));
+			}
+			List<Option<V>> result = new ArrayList<>(futures.size());
+			for (CompletableFuture<Option<V>> future : futures) {
+				result.add(await(future));
+			}
+			return result;
+		};
+	}
+
+	private boolean schedule(Map<K, CompletableFuture<Option<V>>> batch) {
+		try {
+			scheduler.schedule(() -> dispatch(batch), windowNanos, TimeUnit.NANOSECONDS);
+			return true;
+		} catch (RejectedExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 窗口到期，批次没有因为凑满而提前提交时由这里提交
+	 */
+	private void dispatch(Map<K, CompletableFuture<Option<V>>> batch) {
+		synchronized (lock) {
+			if (pending != batch) {
+				return;
+			}
+			pending = null;
+		}
+		submit(batch);
+	}
+
+	private void submit(Map<K, CompletableFuture<Option<V>>> batch) {
+		try {
+			executor.execute(() -> run(batch));
+		} catch (RejectedExecutionException e) {
+			batch.values().forEach(future -> future.completeExceptionally(e));
+		}
+	}
+
+	private void run(Map<K, CompletableFuture<Option<V>>> batch) {
+		try {
+			Map<K, V> result = bulkFn.apply(new ArrayList<>(batch.keySet()));
+			batch.forEach((key, future) -> future.complete(result == null ? Option.none() : Option.of(result.get(key))));
+		} catch (Throwable throwable) {
+			batch.values().forEach(future -> future.completeExceptionally(throwable));
+		}
+	}
+
+	/**
+	 * 调度器、执行器与在途的批次都无法随函数一起序列化，直接拒绝，避免反序列化出一个不可用的加载器
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		throw new NotSerializableException(BatchLoader.class.getName());
+	}
+
+	@SneakyThrows
+	private static <V> Option<V> await(CompletableFuture<Option<V>> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw e.getCause() != null ? e.getCause() : e;
+		}
+	}
+
+}
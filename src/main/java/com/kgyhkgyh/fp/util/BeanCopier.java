@@ -0,0 +1,193 @@
+package com.kgyhkgyh.fp.util;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.FatalBeanException;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 按照(source, target)类型缓存的属性拷贝器
+ * 属性映射只在第一次使用时通过内省解析一次，并转换为{@link MethodHandle}，之后的拷贝不再进行内省与反射调用
+ * 属性的匹配规则与{@link BeanUtils#copyProperties(Object, Object)}一致：
+ * target存在写方法、source存在同名的读方法，且读方法的返回类型可以赋值给写方法的参数类型（包括泛型），null值同样会被拷贝
+ *
+ * @author kgyhkgyh
+ * @version BeanCopier.java, v 0.1 2023年09月28日 16:12 kgyhkgyh
+ */
+public final class BeanCopier<S, R> {
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+	private static final ClassValue<ConcurrentMap<Class<?>, BeanCopier<?, ?>>> CACHE = new ClassValue<ConcurrentMap<Class<?>, BeanCopier<?, ?>>>() {
+		@Override
+		protected ConcurrentMap<Class<?>, BeanCopier<?, ?>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private final Class<S> sourceClazz;
+
+	private final Class<R> targetClazz;
+
+	private final MethodHandle constructor;
+
+	private final String[] names;
+
+	private final MethodHandle[] getters;
+
+	private final MethodHandle[] setters;
+
+	private BeanCopier(Class<S> sourceClazz, Class<R> targetClazz, MethodHandle constructor, List<String> names, List<MethodHandle> getters, List<MethodHandle> setters) {
+		this.sourceClazz = sourceClazz;
+		this.targetClazz = targetClazz;
+		this.constructor = constructor;
+		this.names = names.toArray(new String[0]);
+		this.getters = getters.toArray(new MethodHandle[0]);
+		this.setters = setters.toArray(new MethodHandle[0]);
+	}
+
+	/**
+	 * 获取缓存的拷贝器，不存在时进行构建
+	 *
+	 * @param sourceClazz
+	 * @param targetClazz
+	 * @param <S>
+	 * @param <R>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static <S, R> BeanCopier<S, R> of(Class<S> sourceClazz, Class<R> targetClazz) {
+		ConcurrentMap<Class<?>, BeanCopier<?, ?>> copiers = CACHE.get(sourceClazz);
+		BeanCopier<?, ?> copier = copiers.get(targetClazz);
+		if (copier == null) {
+			copier = copiers.computeIfAbsent(targetClazz, neverMind -> build(sourceClazz, targetClazz));
+		}
+		return (BeanCopier<S, R>) copier;
+	}
+
+	/**
+	 * 创建target实例，并将source的属性拷贝过去
+	 *
+	 * @param source
+	 * @return
+	 */
+	public R copyAndReturn(S source) {
+		R target = newInstance();
+		copy(source, target);
+		return target;
+	}
+
+	/**
+	 * 将source的属性拷贝到target
+	 *
+	 * @param source
+	 * @param target
+	 */
+	public void copy(S source, R target) {
+		if (source == null) {
+			throw new IllegalArgumentException("Source must not be null");
+		}
+		if (target == null) {
+			throw new IllegalArgumentException("Target must not be null");
+		}
+		for (int i = 0; i < getters.length; i++) {
+			try {
+				Object value = (Object) getters[i].invokeExact((Object) source);
+				setters[i].invokeExact((Object) target, value);
+			} catch (Throwable throwable) {
+				throw new FatalBeanException("Could not copy property '" + names[i] + "' from source to target", throwable);
+			}
+		}
+	}
+
+	/**
+	 * 使用无参构造器创建target实例
+	 *
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public R newInstance() {
+		if (constructor == null) {
+			throw new RuntimeException("no accessible no-arg constructor for " + targetClazz.getName());
+		}
+		try {
+			return (R) (Object) constructor.invokeExact();
+		} catch (Throwable throwable) {
+			throw new RuntimeException(throwable);
+		}
+	}
+
+	public Class<S> getSourceClazz() {
+		return sourceClazz;
+	}
+
+	public Class<R> getTargetClazz() {
+		return targetClazz;
+	}
+
+	private static <S, R> BeanCopier<S, R> build(Class<S> sourceClazz, Class<R> targetClazz) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		List<String> names = new ArrayList<>();
+		List<MethodHandle> getters = new ArrayList<>();
+		List<MethodHandle> setters = new ArrayList<>();
+		for (PropertyDescriptor targetPd : BeanUtils.getPropertyDescriptors(targetClazz)) {
+			Method writeMethod = targetPd.getWriteMethod();
+			if (writeMethod == null) {
+				continue;
+			}
+			PropertyDescriptor sourcePd = BeanUtils.getPropertyDescriptor(sourceClazz, targetPd.getName());
+			Method readMethod = sourcePd == null ? null : sourcePd.getReadMethod();
+			if (readMethod == null || !isAssignable(writeMethod, readMethod)) {
+				continue;
+			}
+			try {
+				getters.add(lookup.unreflect(accessible(readMethod)).asType(GETTER_TYPE));
+				setters.add(lookup.unreflect(accessible(writeMethod)).asType(SETTER_TYPE));
+				names.add(targetPd.getName());
+			} catch (IllegalAccessException e) {
+				throw new FatalBeanException("Could not copy property '" + targetPd.getName() + "' from source to target", e);
+			}
+		}
+		return new BeanCopier<>(sourceClazz, targetClazz, constructor(lookup, targetClazz), names, getters, setters);
+	}
+
+	private static MethodHandle constructor(MethodHandles.Lookup lookup, Class<?> targetClazz) {
+		try {
+			return lookup.unreflectConstructor(targetClazz.getConstructor()).asType(CONSTRUCTOR_TYPE);
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return null;
+		}
+	}
+
+	private static boolean isAssignable(Method writeMethod, Method readMethod) {
+		ResolvableType sourceType = ResolvableType.forMethodReturnType(readMethod);
+		ResolvableType targetType = ResolvableType.forMethodParameter(writeMethod, 0);
+		if (sourceType.hasUnresolvableGenerics() || targetType.hasUnresolvableGenerics()) {
+			return ClassUtils.isAssignable(writeMethod.getParameterTypes()[0], readMethod.getReturnType());
+		}
+		return targetType.isAssignableFrom(sourceType);
+	}
+
+	private static Method accessible(Method method) {
+		if (!Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+			method.setAccessible(true);
+		}
+		return method;
+	}
+
+}
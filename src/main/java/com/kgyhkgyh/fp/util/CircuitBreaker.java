@@ -0,0 +1,313 @@
+package com.kgyhkgyh.fp.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁的熔断器，配合{@link TryUtil#objFnCircuitTry}、{@link TryUtil#objFnCircuitTryOrDefault}使用
+ * 使用最近windowSize次调用组成的滑动窗口统计失败率与慢调用率，任意一个达到阈值时熔断器打开，打开期间所有调用直接失败
+ * 打开openDuration后进入半开状态，放行halfOpenProbes次探测调用：探测全部成功则关闭，任意一次失败或者慢调用则重新打开
+ * 探测许可用完之后超过openDuration仍然没有得到全部结果（例如探测调用挂起）时同样重新打开，避免一直停留在半开状态
+ * 关闭状态下不会加锁：申请许可只需要一次volatile读，记录结果需要推进窗口游标、替换槽位各一次原子操作，
+ * 槽位的结果发生变化时再修正总数、失败数与慢调用数；游标与计数器由所有线程共享，调用非常密集时它们是同一个熔断器上的竞争点
+ * 每次状态切换都会进入新的纪元，{@link #tryAcquire()}返回的许可记录了签发时的纪元，纪元已经过期的调用结果不会被统计，
+ * 例如关闭状态下放行、半开之后才结束的调用不会被当作探测
+ * Demo:
+ * CircuitBreaker.of(100, 0.5f, Duration.ofSeconds(10))
+ *               .withSlowCall(Duration.ofMillis(500), 0.8f)
+ *
+ * @author kgyhkgyh
+ * @version CircuitBreaker.java, v 0.1 2023年10月18日 16:40 kgyhkgyh
+ */
+public final class CircuitBreaker {
+
+	/**
+	 * 熔断器打开时交给consumer处理的异常，预分配且不记录堆栈
+	 */
+	public static final ControlFlowException OPEN_EXCEPTION = TryUtil.sharedStackless("circuit breaker is open");
+
+	/**
+	 * {@link #tryAcquire()}拒绝调用时的返回值
+	 */
+	public static final long REJECTED = -1L;
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private static final int CLOSED = 0;
+
+	private static final int OPEN = 1;
+
+	private static final int HALF_OPEN = 2;
+
+	private static final int STATE_BITS = 2;
+
+	private static final long STATE_MASK = (1L << STATE_BITS) - 1;
+
+	private static final int RECORDED = 1;
+
+	private static final int FAILED = 2;
+
+	private static final int SLOW = 4;
+
+	private final int windowSize;
+
+	private final int minimumCalls;
+
+	private final float failureRateThreshold;
+
+	private final long slowCallNanos;
+
+	private final float slowCallRateThreshold;
+
+	private final long openNanos;
+
+	private final int halfOpenProbes;
+
+	/**
+	 * 低2位为状态，其余位为纪元
+	 */
+	private final AtomicLong state = new AtomicLong(CLOSED);
+
+	private final AtomicLong openedAt = new AtomicLong();
+
+	private final AtomicLong halfOpenedAt = new AtomicLong();
+
+	private final AtomicInteger probePermits = new AtomicInteger();
+
+	private final AtomicInteger probeSuccesses = new AtomicInteger();
+
+	private volatile Window window;
+
+	private CircuitBreaker(int windowSize, int minimumCalls, float failureRateThreshold, long slowCallNanos, float slowCallRateThreshold,
+						   long openNanos, int halfOpenProbes) {
+		if (windowSize < 1 || minimumCalls < 1 || halfOpenProbes < 1) {
+			throw new IllegalArgumentException("windowSize, minimumCalls and halfOpenProbes must be positive");
+		}
+		this.windowSize = windowSize;
+		this.minimumCalls = Math.min(minimumCalls, windowSize);
+		this.failureRateThreshold = failureRateThreshold;
+		this.slowCallNanos = slowCallNanos;
+		this.slowCallRateThreshold = slowCallRateThreshold;
+		this.openNanos = openNanos;
+		this.halfOpenProbes = halfOpenProbes;
+		this.window = new Window(windowSize);
+	}
+
+	/**
+	 * 创建熔断器，默认不统计慢调用，窗口内至少有windowSize / 2次调用后才会计算失败率，半开状态放行3次探测
+	 *
+	 * @param windowSize           滑动窗口的调用次数
+	 * @param failureRateThreshold 失败率阈值，0 ~ 1
+	 * @param openDuration         打开状态持续的时间
+	 * @return
+	 */
+	public static CircuitBreaker of(int windowSize, float failureRateThreshold, Duration openDuration) {
+		return new CircuitBreaker(windowSize, Math.max(1, windowSize / 2), failureRateThreshold, 0L, 1.0f, openDuration.toNanos(), 3);
+	}
+
+	/**
+	 * 统计慢调用，返回新的熔断器
+	 *
+	 * @param slowCallDuration      执行时间不小于该值的调用视为慢调用
+	 * @param slowCallRateThreshold 慢调用率阈值，0 ~ 1
+	 * @return
+	 */
+	public CircuitBreaker withSlowCall(Duration slowCallDuration, float slowCallRateThreshold) {
+		return new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, slowCallDuration.toNanos(), slowCallRateThreshold, openNanos, halfOpenProbes);
+	}
+
+	/**
+	 * 设置计算失败率需要的最少调用次数，返回新的熔断器
+	 *
+	 * @param minimumCalls
+	 * @return
+	 */
+	public CircuitBreaker withMinimumCalls(int minimumCalls) {
+		return new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, slowCallNanos, slowCallRateThreshold, openNanos, halfOpenProbes);
+	}
+
+	/**
+	 * 设置半开状态放行的探测次数，返回新的熔断器
+	 *
+	 * @param halfOpenProbes
+	 * @return
+	 */
+	public CircuitBreaker withHalfOpenProbes(int halfOpenProbes) {
+		return new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, slowCallNanos, slowCallRateThreshold, openNanos, halfOpenProbes);
+	}
+
+	public State getState() {
+		return State.values()[stateOf(state.get())];
+	}
+
+	/**
+	 * 申请一次调用许可，熔断器打开或者半开状态的探测次数已经用完时返回{@link #REJECTED}
+	 * 调用结束后必须把许可交给{@link #onSuccess(long, long)}或者{@link #onError(long, long)}，包括调用抛出异常的情况，
+	 * 否则半开状态的探测得不到结果，熔断器要在探测许可用完openDuration之后才会重新打开
+	 *
+	 * @return 许可
+	 */
+	public long tryAcquire() {
+		long current = state.get();
+		int currentState = stateOf(current);
+		if (currentState == CLOSED) {
+			return current;
+		}
+		if (currentState == OPEN) {
+			if (System.nanoTime() - openedAt.get() < openNanos) {
+				return REJECTED;
+			}
+			// 与open相同，先记录半开时间，避免其他线程看到HALF_OPEN时读到上一次的halfOpenedAt而认为探测已经超时
+			halfOpenedAt.set(System.nanoTime());
+			if (state.compareAndSet(current, next(current, HALF_OPEN))) {
+				probeSuccesses.set(0);
+				probePermits.set(halfOpenProbes);
+			}
+		}
+		return acquireProbe();
+	}
+
+	/**
+	 * 调用开始的时间，不统计慢调用时不读取时钟
+	 *
+	 * @return
+	 */
+	public long start() {
+		return slowCallNanos > 0 ? System.nanoTime() : 0L;
+	}
+
+	/**
+	 * 记录一次成功的调用
+	 *
+	 * @param permit {@link #tryAcquire()}的返回值
+	 * @param start  {@link #start()}的返回值
+	 */
+	public void onSuccess(long permit, long start) {
+		record(permit, false, isSlow(start));
+	}
+
+	/**
+	 * 记录一次失败的调用
+	 *
+	 * @param permit {@link #tryAcquire()}的返回值
+	 * @param start  {@link #start()}的返回值
+	 */
+	public void onError(long permit, long start) {
+		record(permit, true, isSlow(start));
+	}
+
+	private long acquireProbe() {
+		for (; ; ) {
+			long current = state.get();
+			int permits = probePermits.get();
+			if (stateOf(current) != HALF_OPEN) {
+				return REJECTED;
+			}
+			if (permits <= 0) {
+				// 探测许可用完后长时间没有结果，说明探测调用挂起或者许可没有被交还，重新打开并进入新的纪元
+				if (System.nanoTime() - halfOpenedAt.get() >= openNanos) {
+					open(current);
+				}
+				return REJECTED;
+			}
+			if (probePermits.compareAndSet(permits, permits - 1)) {
+				return current;
+			}
+		}
+	}
+
+	private boolean isSlow(long start) {
+		return slowCallNanos > 0 && System.nanoTime() - start >= slowCallNanos;
+	}
+
+	private void record(long permit, boolean failed, boolean slow) {
+		long current = state.get();
+		// 许可签发之后状态已经切换过，结果属于过期的纪元
+		if (permit != current) {
+			return;
+		}
+		int currentState = stateOf(current);
+		if (currentState == HALF_OPEN) {
+			if (failed || slow) {
+				open(current);
+			} else if (probeSuccesses.incrementAndGet() >= halfOpenProbes) {
+				state.compareAndSet(current, next(current, CLOSED));
+			}
+			return;
+		}
+		if (currentState != CLOSED) {
+			return;
+		}
+		Window w = window;
+		w.record(RECORDED | (failed ? FAILED : 0) | (slow ? SLOW : 0));
+		int total = w.total.get();
+		if (total < minimumCalls) {
+			return;
+		}
+		if (w.failures.get() >= failureRateThreshold * total
+				|| (slowCallNanos > 0 && w.slowCalls.get() >= slowCallRateThreshold * total)) {
+			open(current);
+		}
+	}
+
+	private void open(long from) {
+		// 先记录打开时间，避免其他线程看到OPEN时读到上一次的openedAt而立即进入半开
+		openedAt.set(System.nanoTime());
+		if (state.compareAndSet(from, next(from, OPEN))) {
+			probePermits.set(0);
+			// 打开与半开期间不使用窗口，提前换成新窗口，关闭后从空窗口开始统计
+			window = new Window(windowSize);
+		}
+	}
+
+	private static int stateOf(long value) {
+		return (int) (value & STATE_MASK);
+	}
+
+	private static long next(long current, int nextState) {
+		return ((current >>> STATE_BITS) + 1) << STATE_BITS | nextState;
+	}
+
+	/**
+	 * 基于环形数组的滑动窗口，每个槽位记录一次调用的结果，替换槽位时同步修正计数
+	 * 计数器只在槽位的结果变化时更新，窗口填满且结果稳定时每次记录只有游标与槽位两次原子操作
+	 */
+	private static final class Window {
+
+		private final AtomicIntegerArray outcomes;
+
+		private final AtomicLong cursor = new AtomicLong();
+
+		private final AtomicInteger total = new AtomicInteger();
+
+		private final AtomicInteger failures = new AtomicInteger();
+
+		private final AtomicInteger slowCalls = new AtomicInteger();
+
+		private Window(int size) {
+			this.outcomes = new AtomicIntegerArray(size);
+		}
+
+		private void record(int outcome) {
+			int slot = (int) (cursor.getAndIncrement() % outcomes.length());
+			int previous = outcomes.getAndSet(slot, outcome);
+			if ((previous & RECORDED) == 0) {
+				total.incrementAndGet();
+			}
+			adjust(failures, previous, outcome, FAILED);
+			adjust(slowCalls, previous, outcome, SLOW);
+		}
+
+		private static void adjust(AtomicInteger counter, int previous, int outcome, int flag) {
+			int delta = ((outcome & flag) != 0 ? 1 : 0) - ((previous & flag) != 0 ? 1 : 0);
+			if (delta != 0) {
+				counter.addAndGet(delta);
+			}
+		}
+	}
+
+}
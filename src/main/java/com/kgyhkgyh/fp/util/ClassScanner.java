@@ -0,0 +1,98 @@
+package com.kgyhkgyh.fp.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * 扫描classpath中指定包（包括子包）下的类，支持目录与jar两种形式
+ * 只加载类而不进行初始化，接口、抽象类、注解、匿名类与局部类会被忽略
+ * 依赖缺失等原因导致无法加载的类（包括{@link LinkageError}）会交给cn处理，不会中断扫描
+ *
+ * @author chen yi (zack)
+ * @date 2023/10/13
+ */
+final class ClassScanner {
+
+    private static final String CLASS_SUFFIX = ".class";
+
+    private ClassScanner() {
+    }
+
+    static List<Class<?>> scan(String packageName, ClassLoader classLoader, BiConsumer<String, Throwable> cn) {
+        String path = packageName.replace('.', '/');
+        List<String> classNames = new ArrayList<>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(path);
+            while (resources.hasMoreElements()) {
+                URL url = resources.nextElement();
+                if ("file".equals(url.getProtocol())) {
+                    collectFromDirectory(new File(URLDecoder.decode(url.getFile(), StandardCharsets.UTF_8.name())), packageName, classNames);
+                } else if ("jar".equals(url.getProtocol())) {
+                    collectFromJar(((JarURLConnection) url.openConnection()).getJarFile(), path, classNames);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Class<?>> classes = new ArrayList<>(classNames.size());
+        for (String className : classNames) {
+            // vavr的Try会直接抛出LinkageError，一个类缺少依赖就会中断整个扫描，因此这里显式捕获
+            try {
+                Class<?> clazz = Class.forName(className, false, classLoader);
+                if (isConcrete(clazz)) {
+                    classes.add(clazz);
+                }
+            } catch (ClassNotFoundException | LinkageError e) {
+                cn.accept(className, e);
+            }
+        }
+        return classes;
+    }
+
+    private static void collectFromDirectory(File directory, String packageName, List<String> classNames) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectFromDirectory(file, packageName + "." + file.getName(), classNames);
+            } else if (file.getName().endsWith(CLASS_SUFFIX)) {
+                String simpleName = file.getName().substring(0, file.getName().length() - CLASS_SUFFIX.length());
+                classNames.add(packageName + "." + simpleName);
+            }
+        }
+    }
+
+    private static void collectFromJar(JarFile jarFile, String path, List<String> classNames) {
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            String name = entries.nextElement().getName();
+            if (name.startsWith(path + "/") && name.endsWith(CLASS_SUFFIX)) {
+                classNames.add(name.substring(0, name.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+            }
+        }
+    }
+
+    private static boolean isConcrete(Class<?> clazz) {
+        return !clazz.isInterface()
+                && !clazz.isAnnotation()
+                && !clazz.isAnonymousClass()
+                && !clazz.isLocalClass()
+                && !clazz.isSynthetic()
+                && !Modifier.isAbstract(clazz.getModifiers());
+    }
+
+}
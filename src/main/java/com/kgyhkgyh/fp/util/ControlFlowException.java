@@ -0,0 +1,22 @@
+package com.kgyhkgyh.fp.util;
+
+/**
+ * 不记录堆栈的控制流异常，构建时不会执行fillInStackTrace，也不支持suppressed异常
+ * 用于热点路径上只表达"失败了"而不需要堆栈的场景，原始异常仍然通过cause保留
+ *
+ * @author kgyhkgyh
+ * @version ControlFlowException.java, v 0.1 2023年10月16日 11:20 kgyhkgyh
+ */
+public class ControlFlowException extends RuntimeException {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public ControlFlowException(String message) {
+		super(message, null, false, false);
+	}
+	
+	public ControlFlowException(String message, Throwable cause) {
+		super(message, cause, false, false);
+	}
+	
+}
@@ -0,0 +1,117 @@
+package com.kgyhkgyh.fp.util;
+
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 异步执行相关的工具方法，为各个工具类的异步版本提供默认的执行器
+ * 运行在java 21及以上版本时默认使用虚拟线程，否则使用{@link ForkJoinPool#commonPool()}
+ * java 21以下版本的公共ForkJoinPool只有cpu核数减一个线程，并且同时服务于{@link ListUtil#parallelJavaListMap}等并行计算，
+ * 在上面执行远程调用这类阻塞任务会耗尽它的线程，因此阻塞的任务应当使用各个工具类接收{@link Executor}参数的版本并传入专门的线程池
+ *
+ * @author kgyhkgyh
+ * @version ExecutorUtil.java, v 0.1 2023年09月25日 10:20 kgyhkgyh
+ */
+public class ExecutorUtil {
+
+	private static final Option<ExecutorService> VIRTUAL_THREAD_EXECUTOR = Try.of(() -> Executors.class.getMethod("newVirtualThreadPerTaskExecutor"))
+																			  .mapTry(method -> (ExecutorService) method.invoke(null))
+																			  .toOption();
+
+	/**
+	 * 默认执行器，java 21及以上为虚拟线程执行器，否则为公共ForkJoinPool，不适合在java 21以下执行阻塞的任务
+	 *
+	 * @return
+	 */
+	public static Executor defaultExecutor() {
+		return VIRTUAL_THREAD_EXECUTOR.map(executor -> (Executor) executor)
+									  .getOrElse(ForkJoinPool::commonPool);
+	}
+
+	/**
+	 * 获取虚拟线程执行器，java 21以下版本返回none
+	 *
+	 * @return
+	 */
+	public static Option<ExecutorService> virtualThreadExecutor() {
+		return VIRTUAL_THREAD_EXECUTOR;
+	}
+
+	/**
+	 * 以{@link FutureTask}的形式在executor上执行task，与{@link CompletableFuture}不同，cancel(true)会中断正在执行的线程
+	 *
+	 * @param task
+	 * @param executor
+	 * @param <R>
+	 * @return
+	 */
+	public static <R> FutureTask<R> execute(Callable<R> task, Executor executor) {
+		FutureTask<R> future = new FutureTask<>(task);
+		executor.execute(future);
+		return future;
+	}
+
+	/**
+	 * 等待future完成，失败时返回none，结果为null时与{@link Try#toOption()}一致返回Some(null)
+	 * 与{@link Try}保持一致，future中抛出的致命异常（如{@link OutOfMemoryError}、{@link LinkageError}）会被直接抛出
+	 *
+	 * @param future
+	 * @param <R>
+	 * @return
+	 */
+	public static <R> Option<R> awaitOption(Future<R> future) {
+		try {
+			return Option.some(future.get());
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			return Option.none();
+		} catch (ExecutionException e) {
+			TryUtil.rethrowIfFatal(e.getCause());
+			return Option.none();
+		} catch (Exception e) {
+			return Option.none();
+		}
+	}
+
+	/**
+	 * 在deadlineNanos({@link System#nanoTime()}时间)之前等待future完成，超时时取消future，超时或者失败都返回none
+	 * 致命异常的处理与{@link #awaitOption(Future)}相同
+	 * 只有{@link #execute(Callable, Executor)}这类支持中断的future才会在取消时中断执行线程，{@link CompletableFuture}会继续执行
+	 *
+	 * @param future
+	 * @param deadlineNanos
+	 * @param <R>
+	 * @return
+	 */
+	public static <R> Option<R> awaitOption(Future<R> future, long deadlineNanos) {
+		try {
+			return Option.some(future.get(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS));
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			return Option.none();
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			return Option.none();
+		} catch (ExecutionException e) {
+			TryUtil.rethrowIfFatal(e.getCause());
+			return Option.none();
+		} catch (Exception e) {
+			return Option.none();
+		}
+	}
+
+}
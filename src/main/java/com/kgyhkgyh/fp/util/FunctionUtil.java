@@ -5,8 +5,16 @@ import io.vavr.Function2;
 import io.vavr.Function3;
 import io.vavr.control.Option;
 import io.vavr.control.Try;
+import lombok.SneakyThrows;
 import org.apache.commons.lang3.BooleanUtils;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -28,7 +36,7 @@ public class FunctionUtil {
      * @return
      */
     public static <T1, T2, R> Function1<T2, R> curry(Function2<T1, T2, R> fn, T1 value) {
-        return Function2.of(fn).curried().apply(value);
+        return t2 -> fn.apply(value, t2);
     }
     
     /**
@@ -53,7 +61,7 @@ public class FunctionUtil {
      * @return
      */
     public static <T1, T2, R> Function1<T1, R> curryRvs(Function2<T1, T2, R> fn, T2 value) {
-        return Function2.of(fn).reversed().curried().apply(value);
+        return t1 -> fn.apply(t1, value);
     }
     
     /**
@@ -115,6 +123,15 @@ public class FunctionUtil {
         return andThen(fn::apply, BooleanUtils::isFalse);
     }
     
+    /**
+     * 创建函数管道，代替多层andThen，编译成每条管道单独定制的函数，参见{@link FunctionPipeline}
+     * @param <T>
+     * @return
+     */
+    public static <T> FunctionPipeline<T, T> pipeline() {
+        return FunctionPipeline.identity();
+    }
+    
     /**
      * 组合两个函数，形成管道调用
      * @param fn1
@@ -174,6 +191,111 @@ public class FunctionUtil {
         };
     }
     
+    /**
+     * 将同步函数提升为异步函数，在默认执行器上执行(java 21及以上为虚拟线程)
+     * @param fn
+     * @param <T>
+     * @param <R>
+     * @return
+     */
+    public static <T, R> Function1<T, CompletableFuture<R>> async(Function1<T, R> fn) {
+        return async(fn, ExecutorUtil.defaultExecutor());
+    }
+
+    /**
+     * 将同步函数提升为异步函数，在executor上执行
+     * @param fn
+     * @param executor
+     * @param <T>
+     * @param <R>
+     * @return
+     */
+    public static <T, R> Function1<T, CompletableFuture<R>> async(Function1<T, R> fn, Executor executor) {
+        return t -> CompletableFuture.supplyAsync(() -> fn.apply(t), executor);
+    }
+
+    /**
+     * 组合两个异步函数，形成异步管道调用，前一个阶段完成后才会开始下一个阶段，不会阻塞线程等待
+     * @param fn1
+     * @param fn2
+     * @param <T>
+     * @param <U>
+     * @param <R>
+     * @return
+     */
+    public static <T, U, R> Function1<T, CompletableFuture<R>> andThenAsync(Function1<T, ? extends CompletionStage<U>> fn1,
+                                                                           Function1<U, ? extends CompletionStage<R>> fn2) {
+        return t -> fn1.apply(t).thenCompose(fn2::apply).toCompletableFuture();
+    }
+
+    /**
+     * 组合三个异步函数，形成异步管道调用
+     * @param fn1
+     * @param fn2
+     * @param fn3
+     * @param <T>
+     * @param <U>
+     * @param <R>
+     * @param <W>
+     * @return
+     */
+    public static <T, U, R, W> Function1<T, CompletableFuture<W>> andThenAsync(Function1<T, ? extends CompletionStage<U>> fn1,
+                                                                              Function1<U, ? extends CompletionStage<R>> fn2,
+                                                                              Function1<R, ? extends CompletionStage<W>> fn3) {
+        return t -> fn1.apply(t).thenCompose(fn2::apply).thenCompose(fn3::apply).toCompletableFuture();
+    }
+
+    /**
+     * 组合两个异步函数，先执行fn2再执行fn1
+     * @param fn1
+     * @param fn2
+     * @param <T>
+     * @param <U>
+     * @param <R>
+     * @return
+     */
+    public static <T, U, R> Function1<T, CompletableFuture<R>> composeAsync(Function1<U, ? extends CompletionStage<R>> fn1,
+                                                                           Function1<T, ? extends CompletionStage<U>> fn2) {
+        return andThenAsync(fn2, fn1);
+    }
+
+    /**
+     * 组合两个Function1变成一个异步的Function2，两个函数在默认执行器上并发执行，都完成后再合并结果
+     * @param fn1
+     * @param fn2
+     * @param combineFn
+     * @param <T1>
+     * @param <T2>
+     * @param <R1>
+     * @param <R2>
+     * @param <R>
+     * @return
+     */
+    public static <T1, T2, R1, R2, R> Function2<T1, T2, CompletableFuture<Option<R>>> combineFnAsync(Function1<T1, R1> fn1, Function1<T2, R2> fn2,
+                                                                                                    Function2<R1, R2, R> combineFn) {
+        return combineFnAsync(fn1, fn2, combineFn, ExecutorUtil.defaultExecutor());
+    }
+
+    /**
+     * 组合两个Function1变成一个异步的Function2，两个函数在executor上并发执行，任意一个失败时返回的future也失败
+     * @param fn1
+     * @param fn2
+     * @param combineFn
+     * @param executor
+     * @param <T1>
+     * @param <T2>
+     * @param <R1>
+     * @param <R2>
+     * @param <R>
+     * @return
+     */
+    public static <T1, T2, R1, R2, R> Function2<T1, T2, CompletableFuture<Option<R>>> combineFnAsync(Function1<T1, R1> fn1, Function1<T2, R2> fn2,
+                                                                                                    Function2<R1, R2, R> combineFn, Executor executor) {
+        return (t1, t2) -> CompletableFuture.supplyAsync(() -> fn1.apply(t1), executor)
+                                            .thenCombine(CompletableFuture.supplyAsync(() -> fn2.apply(t2), executor),
+                                                         (r1, r2) -> Option.of(combineFn.apply(r1, r2)));
+    }
+
     /**
      * 抛弃函数的返回值，将函数变成consumer
      * @param fun
@@ -227,5 +349,86 @@ public class FunctionUtil {
     public static <R, V> Consumer<R> doBiConsumer(BiConsumer<R, V> consumer, V val) {
         return (t) -> consumer.accept(t, val);
     }
-    
+
+    /**
+     * 对函数进行记忆化，最多缓存maximumSize个结果，超出后按照LRU淘汰
+     * @param fn
+     * @param maximumSize
+     * @param <T>
+     * @param <R>
+     * @return
+     */
+    public static <T, R> MemoizedFunction<T, R> memoize(Function1<T, R> fn, long maximumSize) {
+        return new MemoizedFunction<>(fn, maximumSize, null, null);
+    }
+
+    /**
+     * 对函数进行记忆化，最多缓存maximumSize个结果，结果写入expireAfterWrite之后过期
+     * @param fn
+     * @param maximumSize
+     * @param expireAfterWrite
+     * @param <T>
+     * @param <R>
+     * @return
+     */
+    public static <T, R> MemoizedFunction<T, R> memoize(Function1<T, R> fn, long maximumSize, Duration expireAfterWrite) {
+        return new MemoizedFunction<>(fn, maximumSize, expireAfterWrite, null);
+    }
+
+    /**
+     * 对函数进行记忆化，结果写入refreshAfterWrite之后再次被访问时会在默认执行器上异步刷新，刷新完成前仍然返回旧值
+     * @param fn
+     * @param maximumSize
+     * @param expireAfterWrite
+     * @param refreshAfterWrite 应该小于expireAfterWrite
+     * @param <T>
+     * @param <R>
+     * @return
+     */
+    public static <T, R> MemoizedFunction<T, R> memoize(Function1<T, R> fn, long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite) {
+        return new MemoizedFunction<>(fn, maximumSize, expireAfterWrite, refreshAfterWrite);
+    }
+
+    /**
+     * 合并相同参数的并发调用：同一时刻对相等的参数只会执行一次fn，其余调用等待并共享它的结果或者异常
+     * 执行结束后立即移除，不会缓存结果；不同参数落在ConcurrentHashMap不同的桶上，互不竞争；null参数直接执行fn
+     * @param fn
+     * @param <T>
+     * @param <R>
+     * @return
+     */
+    public static <T, R> Function1<T, R> singleFlight(Function1<T, R> fn) {
+        ConcurrentMap<T, CompletableFuture<R>> inflight = new ConcurrentHashMap<>();
+        return t -> {
+            if (t == null) {
+                return fn.apply(null);
+            }
+            CompletableFuture<R> mine = new CompletableFuture<>();
+            CompletableFuture<R> leader = inflight.putIfAbsent(t, mine);
+            if (leader != null) {
+                return awaitFlight(leader);
+            }
+            R result;
+            try {
+                result = fn.apply(t);
+            } catch (Throwable throwable) {
+                inflight.remove(t, mine);
+                mine.completeExceptionally(throwable);
+                throw throwable;
+            }
+            inflight.remove(t, mine);
+            mine.complete(result);
+            return result;
+        };
+    }
+
+    @SneakyThrows
+    private static <R> R awaitFlight(CompletableFuture<R> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            throw e.getCause() != null ? e.getCause() : e;
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+package com.kgyhkgyh.fp.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link TryUtil#objFnTimeout}使用的超时与对冲策略
+ * 每次调用最多等待timeout，开启对冲后第一次执行超过hedgeDelay仍未完成时会再发起一次执行，取先完成的结果并取消另一次执行
+ * hedgeDelay可以固定，也可以取最近执行耗时的百分位数，此时策略会记录耗时，同一个函数的所有调用应该共享同一个策略
+ * 样本只取第一次执行的耗时，被对冲或者超时取消的执行按取消时已经执行的时间计入，避免对冲截掉长尾后百分位数持续下降
+ * Demo:
+ * HedgePolicy.timeout(Duration.ofMillis(200))
+ *            .withHedgePercentile(0.95, Duration.ofMillis(50))
+ *
+ * @author kgyhkgyh
+ * @version HedgePolicy.java, v 0.1 2023年10月19日 10:15 kgyhkgyh
+ */
+public final class HedgePolicy {
+
+	private static final int SAMPLE_SIZE = 256;
+
+	private static final int RECOMPUTE_INTERVAL = 64;
+
+	private final long timeoutNanos;
+
+	private final long hedgeDelayNanos;
+
+	private final double percentile;
+
+	private final AtomicLongArray samples;
+
+	private final AtomicLong cursor = new AtomicLong();
+
+	private volatile long percentileNanos;
+
+	private HedgePolicy(long timeoutNanos, long hedgeDelayNanos, double percentile) {
+		if (timeoutNanos <= 0) {
+			throw new IllegalArgumentException("timeout must be positive");
+		}
+		if (percentile < 0.0d || percentile >= 1.0d) {
+			throw new IllegalArgumentException("percentile must be between 0 and 1");
+		}
+		this.timeoutNanos = timeoutNanos;
+		this.hedgeDelayNanos = hedgeDelayNanos;
+		this.percentile = percentile;
+		this.samples = percentile > 0.0d ? new AtomicLongArray(SAMPLE_SIZE) : null;
+		this.percentileNanos = hedgeDelayNanos;
+	}
+
+	/**
+	 * 只设置超时，不进行对冲
+	 *
+	 * @param timeout
+	 * @return
+	 */
+	public static HedgePolicy timeout(Duration timeout) {
+		return new HedgePolicy(timeout.toNanos(), -1L, 0.0d);
+	}
+
+	/**
+	 * 第一次执行超过固定的hedgeDelay仍未完成时发起对冲，返回新的策略
+	 *
+	 * @param hedgeDelay
+	 * @return
+	 */
+	public HedgePolicy withHedgeDelay(Duration hedgeDelay) {
+		return new HedgePolicy(timeoutNanos, hedgeDelay.toNanos(), 0.0d);
+	}
+
+	/**
+	 * 第一次执行超过最近耗时的percentile百分位数仍未完成时发起对冲，返回新的策略
+	 *
+	 * @param percentile   0 ~ 1，例如0.95
+	 * @param initialDelay 样本不足时使用的对冲延迟
+	 * @return
+	 */
+	public HedgePolicy withHedgePercentile(double percentile, Duration initialDelay) {
+		if (percentile <= 0.0d) {
+			throw new IllegalArgumentException("percentile must be between 0 and 1");
+		}
+		return new HedgePolicy(timeoutNanos, initialDelay.toNanos(), percentile);
+	}
+
+	long timeoutNanos() {
+		return timeoutNanos;
+	}
+
+	/**
+	 * 当前的对冲延迟，小于0表示不对冲
+	 *
+	 * @return
+	 */
+	long hedgeDelayNanos() {
+		return percentileNanos;
+	}
+
+	/**
+	 * 记录第一次执行的耗时，每记录RECOMPUTE_INTERVAL次重新计算一次百分位数
+	 * 第一次执行被对冲或者超时取消时记录的是取消时已经执行的时间，保证慢调用仍然留在样本中
+	 *
+	 * @param nanos
+	 */
+	void record(long nanos) {
+		if (samples == null) {
+			return;
+		}
+		long index = cursor.getAndIncrement();
+		samples.set((int) (index % SAMPLE_SIZE), Math.max(1L, nanos));
+		if ((index + 1) % RECOMPUTE_INTERVAL == 0) {
+			int count = (int) Math.min(index + 1, SAMPLE_SIZE);
+			long[] sorted = new long[count];
+			for (int i = 0; i < count; i++) {
+				sorted[i] = samples.get(i);
+			}
+			Arrays.sort(sorted);
+			percentileNanos = sorted[Math.min(count - 1, (int) (count * percentile))];
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package com.kgyhkgyh.fp.util;
+
+import com.alibaba.fastjson.JSONReader;
+
+import java.io.Closeable;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * 基于fastjson {@link JSONReader}的json数组流式迭代器，每次只解析一个元素，内存占用与数组大小无关
+ * 迭代结束或者解析失败时会自动关闭底层的{@link Reader}，提前放弃迭代时需要调用{@link #close()}
+ *
+ * @author chen yi (zack)
+ * @date 2023/10/9
+ */
+public final class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+
+    private final JSONReader reader;
+
+    private final Class<T> clazz;
+
+    private boolean started;
+
+    private boolean closed;
+
+    JsonArrayIterator(Reader reader, Class<T> clazz) {
+        this.reader = new JSONReader(reader);
+        this.clazz = clazz;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (!started) {
+                reader.startArray();
+                started = true;
+            }
+            if (reader.hasNext()) {
+                return true;
+            }
+            reader.endArray();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        close();
+        return false;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return reader.readObject(clazz);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            reader.close();
+        }
+    }
+
+}
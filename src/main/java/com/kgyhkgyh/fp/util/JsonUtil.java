@@ -1,10 +1,54 @@
 package com.kgyhkgyh.fp.util;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONPath;
+import com.alibaba.fastjson.parser.DefaultJSONParser;
+import com.alibaba.fastjson.parser.Feature;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.serializer.JSONSerializer;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.serializer.SerializeWriter;
+import com.alibaba.fastjson.util.ParameterizedTypeImpl;
+import com.alibaba.fastjson.util.TypeUtils;
 import io.vavr.Function1;
 import io.vavr.Function2;
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.Tuple3;
+import io.vavr.collection.Stream;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * @author chen yi (zack)
@@ -36,4 +80,458 @@ public class JsonUtil {
         return parseObjectFn.reversed().curried().apply(clazz);
     }
 
+    /**
+     * 创建json数组流式解析的偏函数，返回按需解析元素的迭代器
+     *
+     * @param clazz
+     * @param <T>
+     * @return
+     */
+    public static <T> Function1<Reader, JsonArrayIterator<T>> jsonArrIteratorFn(Class<T> clazz) {
+        return reader -> new JsonArrayIterator<>(reader, clazz);
+    }
+
+    /**
+     * 创建json数组流式解析的偏函数，返回懒加载的vavr Stream
+     * 注意不要持有Stream的头部引用，否则已经解析的元素无法被回收
+     * Stream遍历结束或者解析失败时会自动关闭reader，vavr Stream本身无法关闭，没有遍历完就放弃时需要调用方自己关闭reader
+     *
+     * @param clazz
+     * @param <T>
+     * @return
+     */
+    public static <T> Function1<Reader, Stream<T>> jsonArrStreamFn(Class<T> clazz) {
+        return reader -> Stream.ofAll(io.vavr.collection.Iterator.ofAll(new JsonArrayIterator<>(reader, clazz)));
+    }
+
+    /**
+     * 创建json数组流式解析的偏函数，每解析一个元素就交给consumer处理，返回处理的元素个数
+     *
+     * @param clazz
+     * @param consumer
+     * @param <T>
+     * @return
+     */
+    public static <T> Function1<Reader, Long> jsonArrForEachFn(Class<T> clazz, Consumer<T> consumer) {
+        return reader -> {
+            long count = 0;
+            try (JsonArrayIterator<T> iterator = new JsonArrayIterator<>(reader, clazz)) {
+                while (iterator.hasNext()) {
+                    consumer.accept(iterator.next());
+                    count++;
+                }
+            }
+            return count;
+        };
+    }
+
+    /**
+     * 将UTF-8的输入流包装为流式解析使用的Reader
+     *
+     * @param inputStream
+     * @return
+     */
+    public static Reader reader(InputStream inputStream) {
+        return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 打开UTF-8文件作为流式解析使用的Reader
+     *
+     * @param path
+     * @return
+     */
+    public static Reader reader(Path path) {
+        return Try.of(() -> Files.newBufferedReader(path, StandardCharsets.UTF_8))
+                  .getOrElseThrow(e -> new UncheckedIOException(new IOException("open " + path + " failed", e)));
+    }
+
+    /**
+     * 创建按照JSONPath读取单个字段的偏函数，解析过程中会跳过不需要的子树，不会构建完整的对象
+     * 路径不存在或者无法转换为clazz时返回none
+     *
+     * @param path
+     * @param clazz
+     * @param <T>
+     * @return
+     */
+    public static <T> Function1<String, Option<T>> jsonPathFn(String path, Class<T> clazz) {
+        // 提前编译路径，路径非法时在创建函数时就失败
+        JSONPath compiled = JSONPath.compile(path);
+        return json -> Try.of(() -> extract(compiled, json))
+                          .map(value -> TypeUtils.cast(value, clazz, ParserConfig.getGlobalInstance()))
+                          .toOption()
+                          .flatMap(Option::of);
+    }
+
+    /**
+     * 创建按照JSONPath投影两个字段的偏函数，结果为{@link TupleUtil}中的安全{@link Tuple2}，可以直接使用tupleMap、tupleMerge处理
+     * 每个路径各自流式扫描一次json，跳过不需要的子树，不会构建完整的对象；某个路径失败只影响对应的字段
+     *
+     * @param path1
+     * @param clazz1
+     * @param path2
+     * @param clazz2
+     * @param <T1>
+     * @param <T2>
+     * @return
+     */
+    public static <T1, T2> Function1<String, Tuple2<Option<T1>, Option<T2>>> jsonProjectFn(String path1, Class<T1> clazz1, String path2, Class<T2> clazz2) {
+        Function1<String, Option<T1>> fn1 = jsonPathFn(path1, clazz1);
+        Function1<String, Option<T2>> fn2 = jsonPathFn(path2, clazz2);
+        return json -> Tuple.of(fn1.apply(json), fn2.apply(json));
+    }
+
+    /**
+     * 创建按照JSONPath投影三个字段的偏函数，结果为{@link TupleUtil}中的安全{@link Tuple3}，可以直接使用tupleMap、tupleMerge处理
+     * 每个路径各自流式扫描一次json，跳过不需要的子树，不会构建完整的对象；某个路径失败只影响对应的字段
+     *
+     * @param path1
+     * @param clazz1
+     * @param path2
+     * @param clazz2
+     * @param path3
+     * @param clazz3
+     * @param <T1>
+     * @param <T2>
+     * @param <T3>
+     * @return
+     */
+    public static <T1, T2, T3> Function1<String, Tuple3<Option<T1>, Option<T2>, Option<T3>>> jsonProjectFn(String path1, Class<T1> clazz1, String path2, Class<T2> clazz2,
+                                                                                                         String path3, Class<T3> clazz3) {
+        Function1<String, Option<T1>> fn1 = jsonPathFn(path1, clazz1);
+        Function1<String, Option<T2>> fn2 = jsonPathFn(path2, clazz2);
+        Function1<String, Option<T3>> fn3 = jsonPathFn(path3, clazz3);
+        return json -> Tuple.of(fn1.apply(json), fn2.apply(json), fn3.apply(json));
+    }
+
+    /**
+     * 创建UTF-8字节数组jsonParse的偏函数，按严格的UTF-8解码，非法的字节会抛出{@link JSONException}
+     * 只是一个便利方法：字节先解码为按输入长度分配的char数组，fastjson 1.x只能基于String扫描，解析时还会由它构建一次String，
+     * 与先构建String再解析相比不会减少内存分配
+     *
+     * @param clazz
+     * @param <T>
+     * @return
+     */
+    public static <T> Function1<byte[], T> jsonBytesParseFn(Class<T> clazz) {
+        return bytes -> parseBuffer(ByteBuffer.wrap(bytes), clazz);
+    }
+
+    /**
+     * 创建UTF-8字节数组jsonParseArray的偏函数，与{@link #jsonBytesParseFn(Class)}相同
+     *
+     * @param clazz
+     * @param <T>
+     * @return
+     */
+    public static <T> Function1<byte[], List<T>> jsonArrBytesParseFn(Class<T> clazz) {
+        Type listType = listType(clazz);
+        return bytes -> parseBuffer(ByteBuffer.wrap(bytes), listType);
+    }
+
+    /**
+     * 创建UTF-8 ByteBuffer jsonParse的偏函数，解析position到limit之间的内容，不会修改buffer的position
+     * 支持堆内buffer、堆外buffer以及{@link #mapFile(Path)}映射的文件，解码与内存分配与{@link #jsonBytesParseFn(Class)}相同，
+     * char数组按remaining()分配，不论buffer在堆内还是堆外
+     *
+     * @param clazz
+     * @param <T>
+     * @return
+     */
+    public static <T> Function1<ByteBuffer, T> jsonBufferParseFn(Class<T> clazz) {
+        return buffer -> parseBuffer(buffer, clazz);
+    }
+
+    /**
+     * 创建UTF-8 ByteBuffer jsonParseArray的偏函数，解析position到limit之间的内容，不会修改buffer的position
+     *
+     * @param clazz
+     * @param <T>
+     * @return
+     */
+    public static <T> Function1<ByteBuffer, List<T>> jsonArrBufferParseFn(Class<T> clazz) {
+        Type listType = listType(clazz);
+        return buffer -> parseBuffer(buffer, listType);
+    }
+
+    /**
+     * 以只读方式将文件映射到内存，配合{@link #jsonBufferParseFn(Class)}使用，文件大小不能超过2GB
+     * 只是一个便利方法，解析时整个文件的内容仍会解码到堆内，与先读取为字节数组相比不会节省内存
+     *
+     * @param path
+     * @return
+     */
+    public static ByteBuffer mapFile(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 创建NDJSON(json lines)文件并行解析的偏函数，返回成功解析的记录数
+     * 使用公共ForkJoinPool解析，consumer与errorCn都在调用线程上执行，errorCn的第一个参数为出错行在文件中的字节偏移
+     * 致命异常（如{@link OutOfMemoryError}、{@link LinkageError}）不会交给errorCn，而是直接抛出并结束解析
+     *
+     * @param clazz
+     * @param consumer
+     * @param errorCn
+     * @param ordered  是否按照文件中的顺序交给consumer
+     * @param <T>
+     * @return
+     */
+    public static <T> Function1<Path, Long> ndjsonIngestFn(Class<T> clazz, Consumer<T> consumer, BiConsumer<Long, Throwable> errorCn, boolean ordered) {
+        return ndjsonIngestFn(clazz, consumer, errorCn, ordered, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * 创建NDJSON(json lines)文件并行解析的偏函数，返回成功解析的记录数
+     * 同时解析的块最多为parallelism的两倍，consumer处理变慢时解析会随之暂停
+     *
+     * @param clazz
+     * @param consumer
+     * @param errorCn
+     * @param ordered     是否按照文件中的顺序交给consumer
+     * @param executor
+     * @param parallelism
+     * @param <T>
+     * @return
+     */
+    public static <T> Function1<Path, Long> ndjsonIngestFn(Class<T> clazz, Consumer<T> consumer, BiConsumer<Long, Throwable> errorCn, boolean ordered,
+                                                           Executor executor, int parallelism) {
+        NdjsonIngester<T> ingester = new NdjsonIngester<>(clazz, consumer, errorCn, ordered, executor, parallelism, NdjsonIngester.DEFAULT_CHUNK_SIZE);
+        return ingester::ingest;
+    }
+
+    /**
+     * 创建序列化到输出流的偏函数，返回写入的字节数
+     * 序列化使用fastjson线程内复用的字符与字节缓冲区，不会生成中间的String
+     *
+     * @param outputStream
+     * @return
+     */
+    public static Function1<Object, Integer> jsonWriteFn(OutputStream outputStream) {
+        return obj -> Try.of(() -> JSON.writeJSONString(outputStream, obj))
+                         .getOrElseThrow(JsonUtil::unchecked);
+    }
+
+    /**
+     * 创建序列化并追加到StringBuilder的偏函数，不会生成中间的String
+     *
+     * @param builder
+     * @return
+     */
+    public static Function1<Object, StringBuilder> jsonAppendFn(StringBuilder builder) {
+        return obj -> {
+            serialize(new AppendableWriter(builder), obj);
+            return builder;
+        };
+    }
+
+    /**
+     * 创建序列化到ByteBuffer的偏函数，从buffer当前的position开始以UTF-8写入，返回写入的字节数
+     * buffer剩余空间不足时抛出{@link java.nio.BufferOverflowException}
+     *
+     * @param buffer
+     * @return
+     */
+    public static Function1<Object, Integer> jsonBufferWriteFn(ByteBuffer buffer) {
+        return obj -> {
+            int start = buffer.position();
+            try (SerializeWriter out = new SerializeWriter()) {
+                new JSONSerializer(out).write(obj);
+                out.writeToEx(new ByteBufferOutputStream(buffer), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return buffer.position() - start;
+        };
+    }
+
+    /**
+     * 创建将整个列表序列化为一个json数组写入输出流的偏函数，返回写入的字节数，元素不会生成单独的String
+     *
+     * @param outputStream
+     * @return
+     */
+    public static Function1<List<?>, Integer> jsonArrWriteFn(OutputStream outputStream) {
+        return list -> Try.of(() -> JSON.writeJSONString(outputStream, list))
+                          .getOrElseThrow(JsonUtil::unchecked);
+    }
+
+    /**
+     * 创建将整个列表按照NDJSON(每行一个json)格式写入输出流的偏函数，返回写入的元素个数
+     * 所有元素共用一个缓冲区，缓冲区写满时直接刷到输出流，元素不会生成单独的String
+     *
+     * @param outputStream
+     * @return
+     */
+    public static Function1<List<?>, Integer> ndjsonWriteFn(OutputStream outputStream) {
+        return list -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            try (SerializeWriter out = new SerializeWriter(writer)) {
+                for (Object obj : list) {
+                    new JSONSerializer(out).write(obj);
+                    out.write('\n');
+                }
+            }
+            Try.run(writer::flush)
+               .getOrElseThrow(JsonUtil::unchecked);
+            return list.size();
+        };
+    }
+
+    private static void serialize(Writer writer, Object obj) {
+        try (SerializeWriter out = new SerializeWriter(writer)) {
+            new JSONSerializer(out).write(obj);
+        }
+    }
+
+    private static RuntimeException unchecked(Throwable throwable) {
+        return throwable instanceof IOException ? new UncheckedIOException((IOException) throwable)
+                                                : new JSONException(throwable.getMessage(), throwable);
+    }
+
+    /**
+     * 预先构建并缓存classes的fastjson反序列化器与序列化器，避免第一次请求时才生成，返回每个类的耗时
+     * 在调用线程上依次执行，可以作为启动时阻塞的就绪检查，构建失败的类会交给cn处理，并且不会出现在结果中
+     *
+     * @param classes
+     * @param cn
+     * @return
+     */
+    public static Map<Class<?>, Duration> warmUp(Collection<Class<?>> classes, BiConsumer<Class<?>, Throwable> cn) {
+        Map<Class<?>, Duration> costs = new LinkedHashMap<>();
+        for (Class<?> clazz : classes) {
+            warmUp(clazz, cn).forEach(cost -> costs.put(clazz, cost));
+        }
+        return costs;
+    }
+
+    /**
+     * 在executor上并行预热classes的fastjson反序列化器与序列化器，所有类完成后返回每个类的耗时，顺序与classes一致
+     * 构建失败的类会交给cn处理，并且不会出现在结果中
+     *
+     * @param classes
+     * @param cn
+     * @param executor
+     * @return
+     */
+    public static CompletableFuture<Map<Class<?>, Duration>> warmUpAsync(Collection<Class<?>> classes, BiConsumer<Class<?>, Throwable> cn, Executor executor) {
+        List<CompletableFuture<Option<Duration>>> futures = new ArrayList<>(classes.size());
+        for (Class<?> clazz : classes) {
+            futures.add(CompletableFuture.supplyAsync(() -> warmUp(clazz, cn), executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                                .thenApply(neverMind -> {
+                                    Map<Class<?>, Duration> costs = new LinkedHashMap<>();
+                                    Iterator<CompletableFuture<Option<Duration>>> iterator = futures.iterator();
+                                    for (Class<?> clazz : classes) {
+                                        iterator.next().join().forEach(cost -> costs.put(clazz, cost));
+                                    }
+                                    return costs;
+                                });
+    }
+
+    /**
+     * 扫描包（包括子包）下所有可以实例化的类，配合{@link #warmUp(Collection, BiConsumer)}使用，无法加载的类会被忽略
+     *
+     * @param packageName
+     * @return
+     */
+    public static List<Class<?>> scanPackage(String packageName) {
+        return scanPackage(packageName, (className, throwable) -> {
+        });
+    }
+
+    /**
+     * 扫描包（包括子包）下所有可以实例化的类，无法加载的类（包括{@link LinkageError}）会交给cn处理，第一个参数为类名
+     *
+     * @param packageName
+     * @param cn
+     * @return
+     */
+    public static List<Class<?>> scanPackage(String packageName, BiConsumer<String, Throwable> cn) {
+        ClassLoader classLoader = Option.of(Thread.currentThread().getContextClassLoader())
+                                        .getOrElse(JsonUtil.class.getClassLoader());
+        return ClassScanner.scan(packageName, classLoader, cn);
+    }
+
+    private static Option<Duration> warmUp(Class<?> clazz, BiConsumer<Class<?>, Throwable> cn) {
+        long start = System.nanoTime();
+        // 构建序列化器时会初始化类，NoClassDefFoundError等LinkageError不能被vavr的Try捕获，因此显式捕获
+        try {
+            ParserConfig.getGlobalInstance().getDeserializer(clazz);
+            SerializeConfig.getGlobalInstance().getObjectWriter(clazz);
+        } catch (RuntimeException | LinkageError e) {
+            cn.accept(clazz, e);
+            return Option.none();
+        }
+        return Option.some(Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private static Object extract(JSONPath path, String json) {
+        DefaultJSONParser parser = new DefaultJSONParser(json, ParserConfig.getGlobalInstance(), JSON.DEFAULT_PARSER_FEATURE | Feature.OrderedField.mask);
+        try {
+            return path.extract(parser);
+        } finally {
+            parser.lexer.close();
+        }
+    }
+
+    private static <T> T parseBuffer(ByteBuffer buffer, Type type) {
+        // 类型化的反序列化器需要完整的输入，JSONReader分段读取时字符串值超过其缓冲区会解析失败，因此一次解码
+        // 不使用JSON.parseObject(byte[], off, len, ...)：fastjson按整个字节数组的长度分配char数组，非法的UTF-8字节也只会返回null
+        CharBuffer chars = Try.of(() -> StandardCharsets.UTF_8.newDecoder().decode(buffer.duplicate()))
+                              .getOrElseThrow(e -> new JSONException("illegal utf-8 input", e));
+        return JSON.parseObject(chars.array(), chars.limit(), type);
+    }
+
+    private static Type listType(Class<?> clazz) {
+        return new ParameterizedTypeImpl(new Type[]{clazz}, null, List.class);
+    }
+
+    private static final class AppendableWriter extends Writer {
+
+        private final StringBuilder builder;
+
+        private AppendableWriter(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        @Override
+        public void write(char[] chars, int off, int len) {
+            builder.append(chars, off, len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class ByteBufferOutputStream extends OutputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferOutputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) {
+            buffer.put(bytes, off, len);
+        }
+    }
+
 }
@@ -0,0 +1,167 @@
+package com.kgyhkgyh.fp.util;
+
+import io.vavr.Function1;
+import io.vavr.collection.List;
+import io.vavr.control.Option;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按照indexFn构建的key索引，一次线性构建后可以反复按照不同的id列表进行重排
+ * 重复key只保留第一个元素，缺失的key返回null或者defaultValue，与{@link ListUtil#sort}的语义保持一致
+ *
+ * @author kgyhkgyh
+ * @version KeyIndex.java, v 0.1 2023年09月20日 10:12 kgyhkgyh
+ */
+public final class KeyIndex<T, R> {
+
+	private final Map<R, T> index;
+
+	private KeyIndex(Map<R, T> index) {
+		this.index = index;
+	}
+
+	/**
+	 * 对元素构建key索引，indexFn对每个元素只执行一次
+	 *
+	 * @param elements
+	 * @param indexFn
+	 * @param <T>
+	 * @param <R>
+	 * @return
+	 */
+	public static <T, R> KeyIndex<T, R> of(Iterable<T> elements, Function1<T, R> indexFn) {
+		int size = elements instanceof java.util.Collection ? ((java.util.Collection<T>) elements).size() : 16;
+		Map<R, T> index = new HashMap<>(capacity(size));
+		for (T element : elements) {
+			R key = indexFn.apply(element);
+			if (key != null) {
+				index.putIfAbsent(key, element);
+			}
+		}
+		return new KeyIndex<>(index);
+	}
+
+	/**
+	 * 对vavr list构建key索引
+	 *
+	 * @param list
+	 * @param indexFn
+	 * @param <T>
+	 * @param <R>
+	 * @return
+	 */
+	public static <T, R> KeyIndex<T, R> of(List<T> list, Function1<T, R> indexFn) {
+		Map<R, T> index = new HashMap<>(capacity(list.size()));
+		for (T element : list) {
+			R key = indexFn.apply(element);
+			if (key != null) {
+				index.putIfAbsent(key, element);
+			}
+		}
+		return new KeyIndex<>(index);
+	}
+
+	/**
+	 * 按照key获取元素
+	 *
+	 * @param key
+	 * @return
+	 */
+	public Option<T> get(R key) {
+		return Option.of(index.get(key));
+	}
+
+	/**
+	 * 按照key获取元素，缺失时返回默认值
+	 *
+	 * @param key
+	 * @param defaultValue
+	 * @return
+	 */
+	public T getOrElse(R key, T defaultValue) {
+		T t = index.get(key);
+		return t == null ? defaultValue : t;
+	}
+
+	/**
+	 * 是否包含对应的key
+	 *
+	 * @param key
+	 * @return
+	 */
+	public boolean containsKey(R key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * 索引中不同key的数量
+	 *
+	 * @return
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * 按照indexList进行重排，缺失的key返回null
+	 *
+	 * @param indexList
+	 * @return
+	 */
+	public java.util.List<T> reorder(java.util.List<R> indexList) {
+		return reorder(indexList, null);
+	}
+
+	/**
+	 * 按照indexList进行重排，缺失的key返回defaultValue
+	 *
+	 * @param indexList
+	 * @param defaultValue
+	 * @return
+	 */
+	public java.util.List<T> reorder(java.util.List<R> indexList, T defaultValue) {
+		java.util.List<T> result = new ArrayList<>(indexList.size());
+		for (R id : indexList) {
+			result.add(getOrElse(id, defaultValue));
+		}
+		return result;
+	}
+
+	/**
+	 * 按照vavr的indexList进行重排，缺失的key返回null
+	 *
+	 * @param indexList
+	 * @return
+	 */
+	public List<T> reorder(List<R> indexList) {
+		return reorder(indexList, null);
+	}
+
+	/**
+	 * 按照vavr的indexList进行重排，缺失的key返回defaultValue
+	 *
+	 * @param indexList
+	 * @param defaultValue
+	 * @return
+	 */
+	public List<T> reorder(List<R> indexList, T defaultValue) {
+		return indexList.map(id -> getOrElse(id, defaultValue));
+	}
+
+	/**
+	 * 转换为按照key重排的函数，方便在链式调用中使用
+	 *
+	 * @return
+	 */
+	public Function1<java.util.List<R>, java.util.List<T>> reorderFn() {
+		return this::reorder;
+	}
+
+	private static int capacity(int size) {
+		return size < 3 ? size + 1 : (int) (size / 0.75f + 1.0f);
+	}
+
+}
@@ -0,0 +1,130 @@
+package com.kgyhkgyh.fp.util;
+
+import io.vavr.Function1;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * java list的融合管道，收集map/filter/flatMap阶段，执行时对入参只遍历一次并写入预分配大小的{@link ArrayList}
+ * 避免多次调用{@link ListUtil#javaListMap}、{@link ListUtil#javaListFilter}带来的多次整表复制
+ * Demo:
+ * ListUtil.<Order>pipeline()
+ *         .filter(Order::isPaid)
+ *         .map(Order::getUserId)
+ *         .map(userFn)
+ *         .toFn()
+ *
+ * 管道本身是不可变的，每次追加阶段都会返回新的管道对象，可以安全的复用与并发执行
+ *
+ * @author kgyhkgyh
+ * @version ListPipeline.java, v 0.1 2023年09月21日 11:05 kgyhkgyh
+ */
+public final class ListPipeline<T, R> {
+
+	private final List<Stage> stages;
+
+	private ListPipeline(List<Stage> stages) {
+		this.stages = stages;
+	}
+
+	/**
+	 * 创建空管道
+	 *
+	 * @param <T>
+	 * @return
+	 */
+	static <T> ListPipeline<T, T> empty() {
+		return new ListPipeline<>(Collections.emptyList());
+	}
+
+	/**
+	 * 追加映射阶段
+	 *
+	 * @param func
+	 * @param <U>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <U> ListPipeline<T, U> map(Function1<R, U> func) {
+		return append(downstream -> t -> downstream.accept(func.apply((R) t)));
+	}
+
+	/**
+	 * 追加过滤阶段
+	 *
+	 * @param predicate
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public ListPipeline<T, R> filter(Predicate<R> predicate) {
+		return append(downstream -> t -> {
+			if (predicate.test((R) t)) {
+				downstream.accept(t);
+			}
+		});
+	}
+
+	/**
+	 * 追加扁平映射阶段，func返回null时视为空
+	 *
+	 * @param func
+	 * @param <U>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <U> ListPipeline<T, U> flatMap(Function1<R, ? extends Iterable<U>> func) {
+		return append(downstream -> t -> {
+			Iterable<U> iterable = func.apply((R) t);
+			if (iterable != null) {
+				for (U u : iterable) {
+					downstream.accept(u);
+				}
+			}
+		});
+	}
+
+	/**
+	 * 执行管道，对list只进行一次遍历
+	 *
+	 * @param list
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public List<R> apply(List<T> list) {
+		List<R> result = new ArrayList<>(list.size());
+		Consumer<Object> sink = r -> result.add((R) r);
+		for (int i = stages.size() - 1; i >= 0; i--) {
+			sink = stages.get(i).wrap(sink);
+		}
+		for (T t : list) {
+			sink.accept(t);
+		}
+		return result;
+	}
+
+	/**
+	 * 将管道转换为Function1，方便在链式调用中使用
+	 *
+	 * @return
+	 */
+	public Function1<List<T>, List<R>> toFn() {
+		return this::apply;
+	}
+
+	private <U> ListPipeline<T, U> append(Stage stage) {
+		List<Stage> next = new ArrayList<>(stages.size() + 1);
+		next.addAll(stages);
+		next.add(stage);
+		return new ListPipeline<>(Collections.unmodifiableList(next));
+	}
+
+	private interface Stage {
+
+		Consumer<Object> wrap(Consumer<Object> downstream);
+	}
+
+}
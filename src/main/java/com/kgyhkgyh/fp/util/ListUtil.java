@@ -7,7 +7,11 @@ import io.vavr.Tuple3;
 import io.vavr.collection.List;
 import io.vavr.control.Option;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
 
 /**
@@ -49,11 +53,7 @@ public class ListUtil {
 	 * @return
 	 */
 	public static <T1, T2, T3> List<Tuple3<T1, T2, T3>> zipAll(java.util.List<T1> list1, java.util.List<T2> list2, java.util.List<T3> list3) {
-		return toVavrList(list1).zipWithIndex()
-								.map(tuple -> {
-									Integer index = tuple._2;
-									return Tuple.of(tuple._1, list2.size() > index ? list2.get(index) : null, list3.size() > index ? list3.get(index) : null);
-								});
+		return List.ofAll(zipAllView(list1, list2, list3));
 	}
 	
 	/**
@@ -66,11 +66,56 @@ public class ListUtil {
 	 * @return
 	 */
 	public static <T1, T2> List<Tuple2<T1, T2>> zipAll(java.util.List<T1> list1, java.util.List<T2> list2) {
-		return toVavrList(list1).zipWithIndex()
-								.map(tuple -> {
-									Integer index = tuple._2;
-									return Tuple.of(tuple._1, list2.size() > index ? list2.get(index) : null);
-								});
+		return List.ofAll(zipAllView(list1, list2));
+	}
+	
+	/**
+	 * 组合list，返回java list，长度与list1一致，list2不足的部分使用null补齐
+	 * 如果入参均实现了{@link RandomAccess}，则返回按下标懒计算的只读视图，不复制入参
+	 * 否则使用迭代器遍历一次生成结果
+	 *
+	 * @param list1
+	 * @param list2
+	 * @param <T1>
+	 * @param <T2>
+	 * @return
+	 */
+	public static <T1, T2> java.util.List<Tuple2<T1, T2>> zipAllView(java.util.List<T1> list1, java.util.List<T2> list2) {
+		if (list1 instanceof RandomAccess && list2 instanceof RandomAccess) {
+			return new ZipView2<>(list1, list2);
+		}
+		java.util.List<Tuple2<T1, T2>> result = new ArrayList<>(list1.size());
+		Iterator<T2> it2 = list2.iterator();
+		for (T1 t1 : list1) {
+			result.add(Tuple.of(t1, it2.hasNext() ? it2.next() : null));
+		}
+		return result;
+	}
+	
+	/**
+	 * 组合list，返回java list，长度与list1一致，list2、list3不足的部分使用null补齐
+	 * 如果入参均实现了{@link RandomAccess}，则返回按下标懒计算的只读视图，不复制入参
+	 * 否则使用迭代器遍历一次生成结果
+	 *
+	 * @param list1
+	 * @param list2
+	 * @param list3
+	 * @param <T1>
+	 * @param <T2>
+	 * @param <T3>
+	 * @return
+	 */
+	public static <T1, T2, T3> java.util.List<Tuple3<T1, T2, T3>> zipAllView(java.util.List<T1> list1, java.util.List<T2> list2, java.util.List<T3> list3) {
+		if (list1 instanceof RandomAccess && list2 instanceof RandomAccess && list3 instanceof RandomAccess) {
+			return new ZipView3<>(list1, list2, list3);
+		}
+		java.util.List<Tuple3<T1, T2, T3>> result = new ArrayList<>(list1.size());
+		Iterator<T2> it2 = list2.iterator();
+		Iterator<T3> it3 = list3.iterator();
+		for (T1 t1 : list1) {
+			result.add(Tuple.of(t1, it2.hasNext() ? it2.next() : null, it3.hasNext() ? it3.next() : null));
+		}
+		return result;
 	}
 	
 	/**
@@ -114,9 +159,13 @@ public class ListUtil {
 	 * @return
 	 */
 	public static <T, R> Function1<java.util.List<T>, java.util.List<R>> javaListMap(Function1<T, R> func) {
-		return list -> List.ofAll(list)
-						   .map(func)
-						   .toJavaList();
+		return list -> {
+			java.util.List<R> result = new ArrayList<>(list.size());
+			for (T t : list) {
+				result.add(func.apply(t));
+			}
+			return result;
+		};
 	}
 	
 	/**
@@ -128,9 +177,101 @@ public class ListUtil {
 	 * @return
 	 */
 	public static <T> Function1<java.util.List<T>, java.util.List<T>> javaListFilter(Predicate<T> predicate) {
-		return list -> List.ofAll(list)
-						   .filter(predicate)
-						   .toJavaList();
+		return list -> {
+			java.util.List<T> result = new ArrayList<>(list.size());
+			for (T t : list) {
+				if (predicate.test(t)) {
+					result.add(t);
+				}
+			}
+			return result;
+		};
+	}
+	
+	/**
+	 * 使用公共ForkJoinPool并行进行列表映射，结果保持入参顺序
+	 *
+	 * @param func
+	 * @param <T>
+	 * @param <R>
+	 * @return
+	 */
+	public static <T, R> Function1<java.util.List<T>, java.util.List<R>> parallelJavaListMap(Function1<T, R> func) {
+		return parallelJavaListMap(func, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * 使用指定的ForkJoinPool并行进行列表映射，结果保持入参顺序
+	 *
+	 * @param func
+	 * @param pool
+	 * @param <T>
+	 * @param <R>
+	 * @return
+	 */
+	public static <T, R> Function1<java.util.List<T>, java.util.List<R>> parallelJavaListMap(Function1<T, R> func, ForkJoinPool pool) {
+		return parallelJavaListMap(func, pool, ParallelLists.DEFAULT_SEQUENTIAL_THRESHOLD);
+	}
+	
+	/**
+	 * 使用指定的ForkJoinPool并行进行列表映射，list长度不超过sequentialThreshold时串行执行
+	 * 映射函数很重时可以调小sequentialThreshold
+	 *
+	 * @param func
+	 * @param pool
+	 * @param sequentialThreshold
+	 * @param <T>
+	 * @param <R>
+	 * @return
+	 */
+	public static <T, R> Function1<java.util.List<T>, java.util.List<R>> parallelJavaListMap(Function1<T, R> func, ForkJoinPool pool, int sequentialThreshold) {
+		return list -> ParallelLists.map(list, func, pool, sequentialThreshold);
+	}
+	
+	/**
+	 * 使用公共ForkJoinPool并行进行列表过滤，结果保持入参顺序
+	 *
+	 * @param predicate
+	 * @param <T>
+	 * @return
+	 */
+	public static <T> Function1<java.util.List<T>, java.util.List<T>> parallelJavaListFilter(Predicate<T> predicate) {
+		return parallelJavaListFilter(predicate, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * 使用指定的ForkJoinPool并行进行列表过滤，结果保持入参顺序
+	 *
+	 * @param predicate
+	 * @param pool
+	 * @param <T>
+	 * @return
+	 */
+	public static <T> Function1<java.util.List<T>, java.util.List<T>> parallelJavaListFilter(Predicate<T> predicate, ForkJoinPool pool) {
+		return parallelJavaListFilter(predicate, pool, ParallelLists.DEFAULT_SEQUENTIAL_THRESHOLD);
+	}
+	
+	/**
+	 * 使用指定的ForkJoinPool并行进行列表过滤，list长度不超过sequentialThreshold时串行执行
+	 *
+	 * @param predicate
+	 * @param pool
+	 * @param sequentialThreshold
+	 * @param <T>
+	 * @return
+	 */
+	public static <T> Function1<java.util.List<T>, java.util.List<T>> parallelJavaListFilter(Predicate<T> predicate, ForkJoinPool pool, int sequentialThreshold) {
+		return list -> ParallelLists.filter(list, predicate, pool, sequentialThreshold);
+	}
+	
+	/**
+	 * 创建java list的融合管道，多个map/filter/flatMap阶段只遍历一次入参
+	 *
+	 * @param <T>
+	 * @return
+	 */
+	public static <T> ListPipeline<T, T> pipeline() {
+		return ListPipeline.empty();
 	}
 	
 	/**
@@ -144,9 +285,7 @@ public class ListUtil {
 	 * @return
 	 */
 	public static <T, R> List<T> sort(List<T> list, List<R> indexList, Function1<T, R> indexFn) {
-		return indexList.map(id -> list.filter(inter -> indexFn.apply(inter).equals(id))
-									   .headOption()
-									   .getOrNull());
+		return KeyIndex.of(list, indexFn).reorder(indexList);
 	}
 	
 	/**
@@ -160,9 +299,7 @@ public class ListUtil {
 	 * @return
 	 */
 	public static <T, R> List<T> sort(List<T> list, List<R> indexList, Function1<T, R> indexFn, T defaultValue) {
-		return indexList.map(id -> list.filter(inter -> indexFn.apply(inter).equals(id))
-									   .headOption()
-									   .getOrElse(defaultValue));
+		return KeyIndex.of(list, indexFn).reorder(indexList, defaultValue);
 	}
 	
 	/**
@@ -176,7 +313,7 @@ public class ListUtil {
 	 * @return
 	 */
 	public static <T, R> java.util.List<T> sort(java.util.List<T> list, java.util.List<R> indexList, Function1<T, R> indexFn) {
-		return sort(toVavrList(list), toVavrList(indexList), indexFn).toJavaList();
+		return KeyIndex.of(list, indexFn).reorder(indexList);
 	}
 	
 	/**
@@ -190,11 +327,71 @@ public class ListUtil {
 	 * @return
 	 */
 	public static <T, R> java.util.List<T> sort(java.util.List<T> list, java.util.List<R> indexList, Function1<T, R> indexFn, T defaultValue) {
-		return sort(toVavrList(list), toVavrList(indexList), indexFn, defaultValue).toJavaList();
+		return KeyIndex.of(list, indexFn).reorder(indexList, defaultValue);
+	}
+	
+	/**
+	 * 构建可复用的key索引，同一个list需要按照多个id列表重排时使用
+	 *
+	 * @param list
+	 * @param indexFn
+	 * @param <T>
+	 * @param <R>
+	 * @return
+	 */
+	public static <T, R> KeyIndex<T, R> keyIndex(java.util.List<T> list, Function1<T, R> indexFn) {
+		return KeyIndex.of(list, indexFn);
 	}
 	
 	public static <T> Function1<java.util.List<T>, Option<T>> head() {
 		return list -> List.ofAll(list).headOption();
 	}
 	
-}
\ No newline at end of file
+	private static final class ZipView2<T1, T2> extends AbstractList<Tuple2<T1, T2>> implements RandomAccess {
+		
+		private final java.util.List<T1> list1;
+		
+		private final java.util.List<T2> list2;
+		
+		private ZipView2(java.util.List<T1> list1, java.util.List<T2> list2) {
+			this.list1 = list1;
+			this.list2 = list2;
+		}
+		
+		@Override
+		public Tuple2<T1, T2> get(int index) {
+			return Tuple.of(list1.get(index), index < list2.size() ? list2.get(index) : null);
+		}
+		
+		@Override
+		public int size() {
+			return list1.size();
+		}
+	}
+	
+	private static final class ZipView3<T1, T2, T3> extends AbstractList<Tuple3<T1, T2, T3>> implements RandomAccess {
+		
+		private final java.util.List<T1> list1;
+		
+		private final java.util.List<T2> list2;
+		
+		private final java.util.List<T3> list3;
+		
+		private ZipView3(java.util.List<T1> list1, java.util.List<T2> list2, java.util.List<T3> list3) {
+			this.list1 = list1;
+			this.list2 = list2;
+			this.list3 = list3;
+		}
+		
+		@Override
+		public Tuple3<T1, T2, T3> get(int index) {
+			return Tuple.of(list1.get(index), index < list2.size() ? list2.get(index) : null, index < list3.size() ? list3.get(index) : null);
+		}
+		
+		@Override
+		public int size() {
+			return list1.size();
+		}
+	}
+	
+}
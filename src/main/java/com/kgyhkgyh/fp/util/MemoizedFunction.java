@@ -0,0 +1,100 @@
+package com.kgyhkgyh.fp.util;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.vavr.Function1;
+import io.vavr.control.Option;
+import lombok.SneakyThrows;
+
+import java.time.Duration;
+
+/**
+ * 带有容量上限的记忆化函数，{@link FunctionUtil#memoize}的返回值，本身就是一个普通的Function1，可以直接放进已有的函数组合中
+ * 底层为分段加锁的guava缓存，不同段之间互不阻塞，每个段内按照LRU淘汰，同一个key并发调用时只会计算一次
+ * 返回null的结果同样会被缓存，null参数不走缓存；函数抛出的异常原样抛出且不会被缓存
+ * 序列化时只保存fn与缓存的配置，反序列化后以相同的配置重新构建一个空的缓存
+ *
+ * @author chen yi (zack)
+ * @date 2023/10/20
+ */
+public final class MemoizedFunction<T, R> implements Function1<T, R> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Function1<T, R> fn;
+
+    private final long maximumSize;
+
+    private final Duration expireAfterWrite;
+
+    private final Duration refreshAfterWrite;
+
+    private final transient LoadingCache<T, Option<R>> cache;
+
+    MemoizedFunction(Function1<T, R> fn, long maximumSize, Duration expireAfterWrite, Duration refreshAfterWrite) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                                                           .maximumSize(maximumSize)
+                                                           .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+                                                           .recordStats();
+        if (expireAfterWrite != null) {
+            builder.expireAfterWrite(expireAfterWrite);
+        }
+        if (refreshAfterWrite != null) {
+            builder.refreshAfterWrite(refreshAfterWrite);
+        }
+        CacheLoader<T, Option<R>> loader = CacheLoader.from(key -> Option.of(fn.apply(key)));
+        this.fn = fn;
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.refreshAfterWrite = refreshAfterWrite;
+        this.cache = builder.build(refreshAfterWrite != null ? CacheLoader.asyncReloading(loader, ExecutorUtil.defaultExecutor()) : loader);
+    }
+
+    private Object readResolve() {
+        return new MemoizedFunction<>(fn, maximumSize, expireAfterWrite, refreshAfterWrite);
+    }
+
+    @Override
+    @SneakyThrows
+    public R apply(T t) {
+        if (t == null) {
+            return fn.apply(null);
+        }
+        try {
+            return cache.getUnchecked(t).getOrNull();
+        } catch (UncheckedExecutionException | ExecutionError e) {
+            throw e.getCause() != null ? e.getCause() : e;
+        }
+    }
+
+    /**
+     * 命中、未命中、淘汰次数等统计信息
+     *
+     * @return
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 当前缓存的结果数量
+     *
+     * @return
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    public void invalidate(T t) {
+        cache.invalidate(t);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+}
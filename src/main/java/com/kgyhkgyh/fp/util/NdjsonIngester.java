@@ -0,0 +1,212 @@
+package com.kgyhkgyh.fp.util;
+
+import com.alibaba.fastjson.JSON;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * NDJSON(json lines)文件的并行解析，{@link JsonUtil#ndjsonIngestFn}的实现
+ * 文件按照换行符对齐切分为多个块，每个块单独做内存映射并在执行器上解析
+ * 解析结果与错误都在调用线程上交给consumer、errorCn处理，同时在途的块最多为parallelism的两倍，
+ * 因此consumer处理变慢时解析也会随之暂停，内存占用不会随文件大小增长
+ *
+ * @author chen yi (zack)
+ * @date 2023/10/11
+ */
+final class NdjsonIngester<T> {
+
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final int BOUNDARY_SCAN_SIZE = 8 * 1024;
+
+    private final Class<T> clazz;
+
+    private final Consumer<T> consumer;
+
+    private final BiConsumer<Long, Throwable> errorCn;
+
+    private final boolean ordered;
+
+    private final Executor executor;
+
+    private final int parallelism;
+
+    private final int chunkSize;
+
+    NdjsonIngester(Class<T> clazz, Consumer<T> consumer, BiConsumer<Long, Throwable> errorCn, boolean ordered,
+                   Executor executor, int parallelism, int chunkSize) {
+        this.clazz = clazz;
+        this.consumer = consumer;
+        this.errorCn = errorCn;
+        this.ordered = ordered;
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkSize = Math.max(BOUNDARY_SCAN_SIZE, chunkSize);
+    }
+
+    /**
+     * 解析整个文件，返回成功解析的记录数
+     *
+     * @param path
+     * @return
+     */
+    long ingest(Path path) {
+        Deque<CompletableFuture<List<Object>>> inflight = new ArrayDeque<>();
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            while (start < size || !inflight.isEmpty()) {
+                while (start < size && inflight.size() < parallelism * 2) {
+                    long end = chunkEnd(channel, start, size);
+                    long chunkStart = start;
+                    MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, end - chunkStart);
+                    inflight.add(CompletableFuture.supplyAsync(() -> parseChunk(chunk, chunkStart), executor));
+                    start = end;
+                }
+                count += deliver(ordered ? inflight.poll() : pollCompleted(inflight));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            inflight.forEach(future -> future.cancel(true));
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long deliver(CompletableFuture<List<Object>> future) {
+        long count = 0;
+        List<Object> entries;
+        try {
+            entries = future.join();
+        } catch (CompletionException e) {
+            // 块中抛出的致命异常按原样抛出，而不是包装在CompletionException中
+            TryUtil.rethrowIfFatal(e.getCause());
+            throw e;
+        }
+        for (Object entry : entries) {
+            if (entry == null) {
+                continue;
+            }
+            if (entry instanceof LineError) {
+                LineError error = (LineError) entry;
+                errorCn.accept(error.offset, error.throwable);
+            } else {
+                consumer.accept((T) entry);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private CompletableFuture<List<Object>> pollCompleted(Deque<CompletableFuture<List<Object>>> inflight) {
+        CompletableFuture.anyOf(inflight.toArray(new CompletableFuture<?>[0])).join();
+        Iterator<CompletableFuture<List<Object>>> iterator = inflight.iterator();
+        while (iterator.hasNext()) {
+            CompletableFuture<List<Object>> future = iterator.next();
+            if (future.isDone()) {
+                iterator.remove();
+                return future;
+            }
+        }
+        throw new IllegalStateException("no completed chunk");
+    }
+
+    /**
+     * 从start + chunkSize开始向后找到第一个换行符，返回换行符之后的位置
+     */
+    private long chunkEnd(FileChannel channel, long start, long size) throws IOException {
+        long position = start + chunkSize;
+        if (position >= size) {
+            return size;
+        }
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        while (position < size) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private List<Object> parseChunk(ByteBuffer chunk, long chunkStart) {
+        List<Object> entries = new ArrayList<>();
+        byte[] line = new byte[1024];
+        int limit = chunk.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && chunk.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && chunk.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            int length = contentEnd - lineStart;
+            if (!isBlank(chunk, lineStart, contentEnd)) {
+                if (line.length < length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                ByteBuffer view = chunk.duplicate();
+                view.position(lineStart);
+                view.get(line, 0, length);
+                try {
+                    entries.add(JSON.parseObject(line, 0, length, StandardCharsets.UTF_8, clazz));
+                } catch (Throwable throwable) {
+                    // 致命异常不属于某一行的解析错误，直接抛出并结束整个文件的解析
+                    TryUtil.rethrowIfFatal(throwable);
+                    entries.add(new LineError(chunkStart + lineStart, throwable));
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return entries;
+    }
+
+    private static boolean isBlank(ByteBuffer chunk, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = chunk.get(i);
+            if (b != ' ' && b != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class LineError {
+
+        private final long offset;
+
+        private final Throwable throwable;
+
+        private LineError(long offset, Throwable throwable) {
+            this.offset = offset;
+            this.throwable = throwable;
+        }
+    }
+
+}
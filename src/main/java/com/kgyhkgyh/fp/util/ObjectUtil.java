@@ -4,9 +4,10 @@ import com.google.common.base.Objects;
 import io.vavr.Function1;
 import io.vavr.Function2;
 import io.vavr.control.Option;
-import io.vavr.control.Try;
-import org.springframework.beans.BeanUtils;
 
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.*;
 
 import static com.kgyhkgyh.fp.util.FunctionUtil.not;
@@ -61,6 +62,83 @@ public class ObjectUtil {
     }
 
     /**
+     * 将source列表批量拷贝为target列表的Function
+     * 每个批次只解析一次拷贝器，结果按照入参大小预分配；拷贝失败的元素会交给cn处理，并且不会出现在结果中
+     * 与{@link TryUtil}一致，OOM、LinkageError等致命异常不会交给cn，而是直接抛出
+     *
+     * @param clazz
+     * @param cn
+     * @param <T>
+     * @param <R>
+     * @return
+     */
+    public static <T, R> Function1<java.util.List<T>, java.util.List<R>> copyListFn(Class<R> clazz, BiConsumer<T, Throwable> cn) {
+        return list -> {
+            java.util.List<R> result = new ArrayList<>(list.size());
+            Function1<T, R> copyFn = batchCopyFn(clazz, cn);
+            for (T t : list) {
+                R r = copyFn.apply(t);
+                if (r != null) {
+                    result.add(r);
+                }
+            }
+            return result;
+        };
+    }
+
+    /**
+     * 将source列表批量拷贝为target列表的Function，大批次会在pool上并行拷贝，结果保持入参顺序
+     * 拷贝失败的元素会交给cn处理，并且不会出现在结果中，致命异常直接抛出
+     * 注意cn会在pool的工作线程上并发调用，需要是线程安全的
+     *
+     * @param clazz
+     * @param cn
+     * @param pool
+     * @param <T>
+     * @param <R>
+     * @return
+     */
+    public static <T, R> Function1<java.util.List<T>, java.util.List<R>> copyListFn(Class<R> clazz, BiConsumer<T, Throwable> cn, ForkJoinPool pool) {
+        return list -> {
+            java.util.List<R> copied = ListUtil.parallelJavaListMap(batchCopyFn(clazz, cn), pool).apply(list);
+            copied.removeIf(java.util.Objects::isNull);
+            return copied;
+        };
+    }
+
+    /**
+     * 生成一个批次内使用的拷贝函数，相同source类型的元素复用同一个拷贝器，失败时返回null
+     *
+     * @param clazz
+     * @param cn
+     * @param <T>
+     * @param <R>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    private static <T, R> Function1<T, R> batchCopyFn(Class<R> clazz, BiConsumer<T, Throwable> cn) {
+        AtomicReference<BeanCopier<T, R>> last = new AtomicReference<>();
+        return t -> {
+            try {
+                if (t == null) {
+                    throw new IllegalArgumentException("Source must not be null");
+                }
+                BeanCopier<T, R> copier = last.get();
+                if (copier == null || copier.getSourceClazz() != t.getClass()) {
+                    copier = BeanCopier.of((Class<T>) t.getClass(), clazz);
+                    last.set(copier);
+                }
+                return copier.copyAndReturn(t);
+            } catch (Throwable throwable) {
+                TryUtil.rethrowIfFatal(throwable);
+                cn.accept(t, throwable);
+                return null;
+            }
+        };
+    }
+
+    /**
+     * 使用按(source, target)类型缓存的{@link BeanCopier}进行拷贝，属性映射只解析一次
      *
      * @param source
      * @param targetClazz
@@ -68,11 +146,12 @@ public class ObjectUtil {
      * @param <R>
      * @return
      */
+    @SuppressWarnings("unchecked")
     private static <T,R> R copyAndReturn(T source, Class<R> targetClazz){
-        R r = Try.of(targetClazz::newInstance)
-                 .getOrElseThrow((Supplier<RuntimeException>) RuntimeException::new);
-        BeanUtils.copyProperties(source, r);
-        return r;
+        if (source == null) {
+            throw new IllegalArgumentException("Source must not be null");
+        }
+        return BeanCopier.of((Class<T>) source.getClass(), targetClazz).copyAndReturn(source);
     }
 
     /**
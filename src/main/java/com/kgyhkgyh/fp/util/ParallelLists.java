@@ -0,0 +1,139 @@
+package com.kgyhkgyh.fp.util;
+
+import io.vavr.Function1;
+import lombok.SneakyThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * {@link ListUtil}并行映射与过滤的fork-join实现，结果保持入参顺序
+ * 不超过sequentialThreshold的list直接串行执行；更大的list按照大小与pool的并行度自适应切分，
+ * 切片粒度不会小于sequentialThreshold / 4，保证刚超过阈值的list也能分给多个线程
+ * 任意元素执行失败时，会停止剩余的切片，并将原始异常原样抛出给调用方，便于{@link TryUtil}进行处理
+ *
+ * @author kgyhkgyh
+ * @version ParallelLists.java, v 0.1 2023年09月22日 14:30 kgyhkgyh
+ */
+final class ParallelLists {
+
+	/**
+	 * 默认的串行阈值
+	 */
+	static final int DEFAULT_SEQUENTIAL_THRESHOLD = 1024;
+
+	/**
+	 * 每个工作线程期望分到的切片数量，用于平衡负载
+	 */
+	private static final int SLICES_PER_WORKER = 4;
+
+	private ParallelLists() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T, R> List<R> map(List<T> list, Function1<T, R> func, ForkJoinPool pool, int sequentialThreshold) {
+		if (isSequential(list.size(), pool, sequentialThreshold)) {
+			return ListUtil.javaListMap(func).apply(list);
+		}
+		Object[] source = list.toArray();
+		Object[] target = new Object[source.length];
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		pool.invoke(new SliceTask(0, source.length, grain(source.length, pool, sequentialThreshold), failure,
+				i -> target[i] = func.apply((T) source[i])));
+		rethrow(failure.get());
+		List<R> result = new ArrayList<>(target.length);
+		for (Object r : target) {
+			result.add((R) r);
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> List<T> filter(List<T> list, Predicate<T> predicate, ForkJoinPool pool, int sequentialThreshold) {
+		if (isSequential(list.size(), pool, sequentialThreshold)) {
+			return ListUtil.javaListFilter(predicate).apply(list);
+		}
+		Object[] source = list.toArray();
+		boolean[] keep = new boolean[source.length];
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		pool.invoke(new SliceTask(0, source.length, grain(source.length, pool, sequentialThreshold), failure,
+				i -> keep[i] = predicate.test((T) source[i])));
+		rethrow(failure.get());
+		List<T> result = new ArrayList<>();
+		for (int i = 0; i < source.length; i++) {
+			if (keep[i]) {
+				result.add((T) source[i]);
+			}
+		}
+		return result;
+	}
+
+	private static boolean isSequential(int size, ForkJoinPool pool, int sequentialThreshold) {
+		return size <= Math.max(1, sequentialThreshold) || pool.getParallelism() <= 1;
+	}
+
+	private static int grain(int size, ForkJoinPool pool, int sequentialThreshold) {
+		int slices = pool.getParallelism() * SLICES_PER_WORKER;
+		return Math.max(Math.max(1, sequentialThreshold / SLICES_PER_WORKER), size / slices);
+	}
+
+	@SneakyThrows
+	private static void rethrow(Throwable throwable) {
+		if (throwable != null) {
+			throw throwable;
+		}
+	}
+
+	private interface IndexAction {
+
+		void run(int index);
+	}
+
+	private static final class SliceTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+
+		private final int to;
+
+		private final int grain;
+
+		private final AtomicReference<Throwable> failure;
+
+		private final IndexAction action;
+
+		private SliceTask(int from, int to, int grain, AtomicReference<Throwable> failure, IndexAction action) {
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.failure = failure;
+			this.action = action;
+		}
+
+		@Override
+		protected void compute() {
+			if (failure.get() != null) {
+				return;
+			}
+			if (to - from <= grain) {
+				try {
+					for (int i = from; i < to; i++) {
+						action.run(i);
+					}
+				} catch (Throwable throwable) {
+					failure.compareAndSet(null, throwable);
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new SliceTask(from, mid, grain, failure, action),
+					new SliceTask(mid, to, grain, failure, action));
+		}
+	}
+
+}
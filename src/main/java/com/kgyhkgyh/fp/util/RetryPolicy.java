@@ -0,0 +1,117 @@
+package com.kgyhkgyh.fp.util;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * {@link TryUtil#objFnRetry}使用的重试策略，不可变对象，with方法会返回新的策略
+ * 第n次重试前的等待时间为 initialDelay * multiplier^(n-1)，不超过maxDelay，并在 [1 - jitter, 1 + jitter] 的范围内随机抖动
+ * Demo:
+ * RetryPolicy.of(3, Duration.ofMillis(50))
+ *            .withMaxDelay(Duration.ofSeconds(1))
+ *            .retryOn(e -> e instanceof IOException)
+ *
+ * @author kgyhkgyh
+ * @version RetryPolicy.java, v 0.1 2023年10月17日 14:05 kgyhkgyh
+ */
+public final class RetryPolicy {
+
+	private final int maxAttempts;
+
+	private final long initialDelayNanos;
+
+	private final long maxDelayNanos;
+
+	private final double multiplier;
+
+	private final double jitter;
+
+	private final Predicate<Throwable> retryable;
+
+	private RetryPolicy(int maxAttempts, long initialDelayNanos, long maxDelayNanos, double multiplier, double jitter, Predicate<Throwable> retryable) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be positive");
+		}
+		if (multiplier < 1.0d) {
+			throw new IllegalArgumentException("multiplier must not be less than 1");
+		}
+		if (jitter < 0.0d || jitter > 1.0d) {
+			throw new IllegalArgumentException("jitter must be between 0 and 1");
+		}
+		this.maxAttempts = maxAttempts;
+		this.initialDelayNanos = initialDelayNanos;
+		this.maxDelayNanos = maxDelayNanos;
+		this.multiplier = multiplier;
+		this.jitter = jitter;
+		this.retryable = retryable;
+	}
+
+	/**
+	 * 创建重试策略，默认倍数为2，抖动为0.2，最大等待时间为initialDelay的100倍，所有异常都会重试
+	 *
+	 * @param maxAttempts  最多执行的次数，包括第一次执行
+	 * @param initialDelay
+	 * @return
+	 */
+	public static RetryPolicy of(int maxAttempts, Duration initialDelay) {
+		long initial = initialDelay.toNanos();
+		return new RetryPolicy(maxAttempts, initial, saturatedMultiply(initial, 100), 2.0d, 0.2d, throwable -> true);
+	}
+
+	public RetryPolicy withMaxDelay(Duration maxDelay) {
+		return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelay.toNanos(), multiplier, jitter, retryable);
+	}
+
+	public RetryPolicy withMultiplier(double multiplier) {
+		return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelayNanos, multiplier, jitter, retryable);
+	}
+
+	public RetryPolicy withJitter(double jitter) {
+		return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelayNanos, multiplier, jitter, retryable);
+	}
+
+	/**
+	 * 只有满足retryable的异常才会重试，其他异常直接视为失败
+	 *
+	 * @param retryable
+	 * @return
+	 */
+	public RetryPolicy retryOn(Predicate<Throwable> retryable) {
+		return new RetryPolicy(maxAttempts, initialDelayNanos, maxDelayNanos, multiplier, jitter, retryable);
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * 第attempt次执行失败后是否应该重试
+	 *
+	 * @param attempt   从1开始
+	 * @param throwable
+	 * @return
+	 */
+	boolean shouldRetry(int attempt, Throwable throwable) {
+		return attempt < maxAttempts && retryable.test(throwable);
+	}
+
+	/**
+	 * 第attempt次执行失败后，下一次执行前需要等待的纳秒数
+	 *
+	 * @param attempt 从1开始
+	 * @return
+	 */
+	long delayNanos(int attempt) {
+		double delay = Math.min((double) maxDelayNanos, initialDelayNanos * Math.pow(multiplier, attempt - 1));
+		if (jitter > 0.0d) {
+			delay *= 1.0d - jitter + 2.0d * jitter * ThreadLocalRandom.current().nextDouble();
+		}
+		return (long) Math.min((double) maxDelayNanos, delay);
+	}
+
+	private static long saturatedMultiply(long value, long factor) {
+		return value > Long.MAX_VALUE / factor ? Long.MAX_VALUE : value * factor;
+	}
+
+}
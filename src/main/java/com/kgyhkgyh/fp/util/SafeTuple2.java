@@ -0,0 +1,203 @@
+package com.kgyhkgyh.fp.util;
+
+import io.vavr.Function1;
+import io.vavr.Function2;
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.control.Option;
+
+import java.util.Objects;
+
+/**
+ * 轻量的安全{@link Tuple2}，直接保存可为空的元素，null即表示元素不存在
+ * 与{@link TupleUtil}中的Tuple2<Option<T>...>语义一致，但每个元素不再额外分配{@link Option}，映射过程中也不需要lift函数
+ * 与lift一样，映射或者合并抛出的异常视为元素不存在，OOM、LinkageError等致命异常直接抛出；
+ * 唯一的区别是返回null的映射：lift得到Some(null)，这里null即不存在，后续的映射与合并不会再执行
+ * 仅在需要与vavr类型交互的边界处使用{@link #toTuple()}、{@link #of(Tuple2)}进行转换
+ *
+ * @author kgyhkgyh
+ * @version SafeTuple2.java, v 0.1 2023年09月27日 10:30 kgyhkgyh
+ */
+public final class SafeTuple2<T1, T2> {
+
+	private static final SafeTuple2<?, ?> EMPTY = new SafeTuple2<>(null, null);
+
+	private final T1 _1;
+
+	private final T2 _2;
+
+	private SafeTuple2(T1 t1, T2 t2) {
+		this._1 = t1;
+		this._2 = t2;
+	}
+
+	/**
+	 * 构建安全tuple，null元素视为不存在
+	 * @param t1
+	 * @param t2
+	 * @return
+	 * @param <T1>
+	 * @param <T2>
+	 */
+	public static <T1, T2> SafeTuple2<T1, T2> of(T1 t1, T2 t2) {
+		return new SafeTuple2<>(t1, t2);
+	}
+
+	/**
+	 * 从{@link TupleUtil}的安全Tuple2转换
+	 * @param tuple
+	 * @return
+	 * @param <T1>
+	 * @param <T2>
+	 */
+	public static <T1, T2> SafeTuple2<T1, T2> of(Tuple2<Option<T1>, Option<T2>> tuple) {
+		return new SafeTuple2<>(tuple._1.getOrNull(), tuple._2.getOrNull());
+	}
+
+	/**
+	 * 所有元素都不存在的安全tuple，不会重复分配
+	 * @return
+	 * @param <T1>
+	 * @param <T2>
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T1, T2> SafeTuple2<T1, T2> empty() {
+		return (SafeTuple2<T1, T2>) EMPTY;
+	}
+
+	/**
+	 * 将一个值分拆为安全tuple，函数抛出异常或者返回null的元素视为不存在
+	 * @param fn1
+	 * @param fn2
+	 * @return
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 */
+	public static <T, R1, R2> Function1<T, SafeTuple2<R1, R2>> split(Function1<T, R1> fn1, Function1<T, R2> fn2) {
+		return t -> t == null ? empty() : new SafeTuple2<>(safeApply(fn1, t), safeApply(fn2, t));
+	}
+
+	/**
+	 * 第1个元素，不存在时返回null
+	 * @return
+	 */
+	public T1 get1() {
+		return _1;
+	}
+
+	/**
+	 * 第2个元素，不存在时返回null
+	 * @return
+	 */
+	public T2 get2() {
+		return _2;
+	}
+
+	/**
+	 * 第1个元素是否存在
+	 * @return
+	 */
+	public boolean isPresent1() {
+		return _1 != null;
+	}
+
+	/**
+	 * 第2个元素是否存在
+	 * @return
+	 */
+	public boolean isPresent2() {
+		return _2 != null;
+	}
+
+	/**
+	 * 所有元素是否都存在，对应{@link TupleUtil#allSafe()}
+	 * @return
+	 */
+	public boolean isAllPresent() {
+		return _1 != null && _2 != null;
+	}
+
+	/**
+	 * 对每个元素进行映射，不存在的元素不会执行映射，映射抛出异常或者返回null的元素视为不存在
+	 * @param fn1
+	 * @param fn2
+	 * @return
+	 * @param <R1>
+	 * @param <R2>
+	 */
+	public <R1, R2> SafeTuple2<R1, R2> map(Function1<T1, R1> fn1, Function1<T2, R2> fn2) {
+		if (_1 == null && _2 == null) {
+			return empty();
+		}
+		return new SafeTuple2<>(_1 == null ? null : safeApply(fn1, _1), _2 == null ? null : safeApply(fn2, _2));
+	}
+
+	/**
+	 * 所有元素都存在时进行合并，否则返回null，合并抛出异常时同样返回null
+	 * @param fn
+	 * @return
+	 * @param <R>
+	 */
+	public <R> R mergeOrNull(Function2<T1, T2, R> fn) {
+		if (!isAllPresent()) {
+			return null;
+		}
+		try {
+			return fn.apply(_1, _2);
+		} catch (Throwable throwable) {
+			TryUtil.rethrowIfFatal(throwable);
+			return null;
+		}
+	}
+
+	/**
+	 * 所有元素都存在时进行合并，语义与{@link TupleUtil#tupleMerge(Function2)}一致
+	 * @param fn
+	 * @return
+	 * @param <R>
+	 */
+	public <R> Option<R> merge(Function2<T1, T2, R> fn) {
+		return Option.of(mergeOrNull(fn));
+	}
+
+	/**
+	 * 转换为{@link TupleUtil}的安全Tuple2
+	 * @return
+	 */
+	public Tuple2<Option<T1>, Option<T2>> toTuple() {
+		return Tuple.of(Option.of(_1), Option.of(_2));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof SafeTuple2)) {
+			return false;
+		}
+		SafeTuple2<?, ?> that = (SafeTuple2<?, ?>) o;
+		return Objects.equals(_1, that._1) && Objects.equals(_2, that._2);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(_1, _2);
+	}
+
+	@Override
+	public String toString() {
+		return "(" + _1 + ", " + _2 + ")";
+	}
+
+	private static <T, R> R safeApply(Function1<T, R> fn, T t) {
+		try {
+			return fn.apply(t);
+		} catch (Throwable throwable) {
+			TryUtil.rethrowIfFatal(throwable);
+			return null;
+		}
+	}
+
+}
@@ -1,12 +1,20 @@
 package com.kgyhkgyh.fp.util;
 
-import com.google.common.collect.Lists;
 import io.vavr.Function1;
 import io.vavr.control.Option;
 import io.vavr.control.Try;
 import lombok.SneakyThrows;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
@@ -25,10 +33,15 @@ public class TryUtil {
 	 * @param <R>
 	 */
 	public static <T, R> Function1<T, Option<R>> objFnTry(Function1<T, R> func, BiConsumer<T, Throwable> cn) {
-		return t -> Try.success(t)
-					   .map(func)
-					   .onFailure(throwable -> cn.accept(t, throwable))
-					   .toOption();
+		return t -> {
+			try {
+				return Option.some(func.apply(t));
+			} catch (Throwable throwable) {
+				rethrowIfFatal(throwable);
+				cn.accept(t, throwable);
+				return Option.none();
+			}
+		};
 	}
 	
 	/**
@@ -40,10 +53,38 @@ public class TryUtil {
 	 * @param <R>
 	 */
 	public static <T, R> Function1<T, Option<R>> objFnTry(Function1<T, R> func, Exception e) {
-		return t -> Try.success(t)
-					   .map(func)
-					   .onFailure(throwException(e))
-					   .toOption();
+		return t -> {
+			try {
+				return Option.some(func.apply(t));
+			} catch (Throwable throwable) {
+				rethrowIfFatal(throwable);
+				throwConsumer(e);
+				return Option.none();
+			}
+		};
+	}
+	
+	/**
+	 * 非安全执行函数func，如果出现异常先将原始异常交给cn处理，再抛出指定异常
+	 * 配合{@link #sharedStackless(String)}使用，共享异常无法携带cause，原始异常通过cn保留
+	 * @param func
+	 * @param e
+	 * @param cn
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, Option<R>> objFnTry(Function1<T, R> func, Exception e, BiConsumer<T, Throwable> cn) {
+		return t -> {
+			try {
+				return Option.some(func.apply(t));
+			} catch (Throwable throwable) {
+				rethrowIfFatal(throwable);
+				cn.accept(t, throwable);
+				throwConsumer(e);
+				return Option.none();
+			}
+		};
 	}
 	
 	/**
@@ -55,10 +96,47 @@ public class TryUtil {
 	 * @param <R>
 	 */
 	public static <T, R, E extends Exception> Function1<T, Option<R>> objFnTry(Function1<T, R> func, Function1<Throwable, E> eFunc) {
-		return t -> Try.success(t)
-					   .map(func)
-					   .onFailure(throwException(eFunc))
-					   .toOption();
+		return t -> {
+			try {
+				return Option.some(func.apply(t));
+			} catch (Throwable throwable) {
+				rethrowIfFatal(throwable);
+				throwConsumer(eFunc.apply(throwable));
+				return Option.none();
+			}
+		};
+	}
+	
+	/**
+	 * 非安全执行函数func，如果出现异常则抛出一个不记录堆栈的{@link ControlFlowException}，原始异常作为cause保留
+	 * @param func
+	 * @param message
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, Option<R>> objFnTryStackless(Function1<T, R> func, String message) {
+		return objFnTry(func, stackless(message));
+	}
+	
+	/**
+	 * 创建不记录堆栈的异常构建函数，配合{@link #objFnTry(Function1, Function1)}使用，每次失败都会创建新的异常并保留原始异常
+	 * @param message
+	 * @return
+	 */
+	public static Function1<Throwable, ControlFlowException> stackless(String message) {
+		return cause -> new ControlFlowException(message, cause);
+	}
+	
+	/**
+	 * 创建可以共享的预分配异常，配合{@link #objFnTry(Function1, Exception, BiConsumer)}使用
+	 * 异常没有堆栈、不支持suppressed，也无法再设置cause，因此可以在多个线程之间安全的重复抛出
+	 * 注意共享异常不携带原始异常：需要保留原始异常时通过上面的cn处理，或者使用每次创建新异常的{@link #stackless(String)}
+	 * @param message
+	 * @return
+	 */
+	public static ControlFlowException sharedStackless(String message) {
+		return new ControlFlowException(message);
 	}
 	
 	/**
@@ -70,13 +148,17 @@ public class TryUtil {
 	 * @param <R>
 	 */
 	public static <T, R> Function1<T, Option<io.vavr.collection.List<R>>> listFnTry(Function1<T, List<R>> func, BiConsumer<T, Throwable> cn) {
-		return t -> Try.success(t)
-					   .map(func)
-					   .onFailure(throwable -> cn.accept(t, throwable))
-					   .filter(list -> list != null)
-					   .orElse(Try.of(() -> Lists.newArrayList()))
-					   .map(ListUtil::toVavrList)
-					   .toOption();
+		return t -> {
+			List<R> list;
+			try {
+				list = func.apply(t);
+			} catch (Throwable throwable) {
+				rethrowIfFatal(throwable);
+				cn.accept(t, throwable);
+				list = null;
+			}
+			return Option.some(list == null ? io.vavr.collection.List.empty() : ListUtil.toVavrList(list));
+		};
 	}
 	
 	/**
@@ -88,11 +170,16 @@ public class TryUtil {
 	 * @param <R>
 	 */
 	public static <T, R> Function1<T, Option<io.vavr.collection.List<R>>> vavrListFnTry(Function1<T, io.vavr.collection.List<R>> func, BiConsumer<T, Throwable> cn) {
-		return t -> Try.success(t)
-					   .map(func)
-					   .onFailure(throwable -> cn.accept(t, throwable))
-					   .filter(list -> list != null && !list.isEmpty())
-					   .toOption();
+		return t -> {
+			try {
+				io.vavr.collection.List<R> list = func.apply(t);
+				return list != null && !list.isEmpty() ? Option.some(list) : Option.none();
+			} catch (Throwable throwable) {
+				rethrowIfFatal(throwable);
+				cn.accept(t, throwable);
+				return Option.none();
+			}
+		};
 	}
 	
 	/**
@@ -105,10 +192,324 @@ public class TryUtil {
 	 * @param <R>
 	 */
 	public static <T, R> Function1<T, R> objFnTryOrDefault(Function1<T, R> func, R defaultValue, BiConsumer<T, Throwable> cn) {
-		return t -> Try.success(t)
-					   .map(func)
-					   .onFailure(throwable -> cn.accept(t, throwable))
-					   .getOrElse(defaultValue);
+		return t -> {
+			try {
+				return func.apply(t);
+			} catch (Throwable throwable) {
+				rethrowIfFatal(throwable);
+				cn.accept(t, throwable);
+				return defaultValue;
+			}
+		};
+	}
+	
+	/**
+	 * 在熔断器的保护下安全执行func，熔断器打开时不执行func，直接返回Option.none()并把{@link CircuitBreaker#OPEN_EXCEPTION}交给consumer处理
+	 * @param func
+	 * @param breaker
+	 * @param cn
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, Option<R>> objFnCircuitTry(Function1<T, R> func, CircuitBreaker breaker, BiConsumer<T, Throwable> cn) {
+		return t -> {
+			long permit = breaker.tryAcquire();
+			if (permit == CircuitBreaker.REJECTED) {
+				cn.accept(t, CircuitBreaker.OPEN_EXCEPTION);
+				return Option.none();
+			}
+			long start = breaker.start();
+			try {
+				R result = func.apply(t);
+				breaker.onSuccess(permit, start);
+				return Option.some(result);
+			} catch (Throwable throwable) {
+				breaker.onError(permit, start);
+				rethrowIfFatal(throwable);
+				cn.accept(t, throwable);
+				return Option.none();
+			}
+		};
+	}
+	
+	/**
+	 * 在熔断器的保护下执行func，执行失败或者熔断器打开时返回默认值
+	 * @param func
+	 * @param defaultValue
+	 * @param breaker
+	 * @param cn
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, R> objFnCircuitTryOrDefault(Function1<T, R> func, R defaultValue, CircuitBreaker breaker, BiConsumer<T, Throwable> cn) {
+		return t -> {
+			long permit = breaker.tryAcquire();
+			if (permit == CircuitBreaker.REJECTED) {
+				cn.accept(t, CircuitBreaker.OPEN_EXCEPTION);
+				return defaultValue;
+			}
+			long start = breaker.start();
+			try {
+				R result = func.apply(t);
+				breaker.onSuccess(permit, start);
+				return result;
+			} catch (Throwable throwable) {
+				breaker.onError(permit, start);
+				rethrowIfFatal(throwable);
+				cn.accept(t, throwable);
+				return defaultValue;
+			}
+		};
+	}
+	
+	/**
+	 * 在默认执行器上执行func并最多等待policy的超时时间，超时或者失败时使用consumer进行信息处理，最终返回Option<R>
+	 * 超时时consumer收到{@link TimeoutException}，仍在执行的func会被中断
+	 * @param func
+	 * @param policy
+	 * @param cn
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, Option<R>> objFnTimeout(Function1<T, R> func, HedgePolicy policy, BiConsumer<T, Throwable> cn) {
+		return objFnTimeout(func, policy, cn, ExecutorUtil.defaultExecutor());
+	}
+	
+	/**
+	 * 在executor上执行func并最多等待policy的超时时间，策略开启对冲时第一次执行过慢会再发起一次执行，取先完成的结果并中断另一次执行
+	 * 超时或者失败时使用consumer进行信息处理，最终返回Option<R>
+	 * @param func
+	 * @param policy
+	 * @param cn
+	 * @param executor
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, Option<R>> objFnTimeout(Function1<T, R> func, HedgePolicy policy, BiConsumer<T, Throwable> cn, Executor executor) {
+		return t -> {
+			try {
+				return Option.some(callHedged(func, t, policy, executor));
+			} catch (Throwable throwable) {
+				rethrowIfFatal(throwable);
+				cn.accept(t, throwable);
+				return Option.none();
+			}
+		};
+	}
+	
+	/**
+	 * 在默认执行器上执行func并最多等待policy的超时时间，超时或者失败时返回默认值
+	 * @param func
+	 * @param defaultValue
+	 * @param policy
+	 * @param cn
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, R> objFnTimeoutOrDefault(Function1<T, R> func, R defaultValue, HedgePolicy policy, BiConsumer<T, Throwable> cn) {
+		return objFnTimeoutOrDefault(func, defaultValue, policy, cn, ExecutorUtil.defaultExecutor());
+	}
+	
+	/**
+	 * 在executor上执行func并最多等待policy的超时时间，超时或者失败时返回默认值
+	 * @param func
+	 * @param defaultValue
+	 * @param policy
+	 * @param cn
+	 * @param executor
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, R> objFnTimeoutOrDefault(Function1<T, R> func, R defaultValue, HedgePolicy policy, BiConsumer<T, Throwable> cn,
+															   Executor executor) {
+		return t -> {
+			try {
+				return callHedged(func, t, policy, executor);
+			} catch (Throwable throwable) {
+				rethrowIfFatal(throwable);
+				cn.accept(t, throwable);
+				return defaultValue;
+			}
+		};
+	}
+	
+	private static <T, R> R callHedged(Function1<T, R> func, T t, HedgePolicy policy, Executor executor) throws Throwable {
+		long start = System.nanoTime();
+		long deadline = start + policy.timeoutNanos();
+		CompletableFuture<R> result = new CompletableFuture<>();
+		AtomicInteger pending = new AtomicInteger(1);
+		FutureTask<R> first = startAttempt(func, t, policy, executor, result, pending, true);
+		FutureTask<R> second = null;
+		try {
+			long hedgeDelay = policy.hedgeDelayNanos();
+			if (hedgeDelay >= 0 && hedgeDelay < policy.timeoutNanos()) {
+				try {
+					return result.get(hedgeDelay, TimeUnit.NANOSECONDS);
+				} catch (TimeoutException e) {
+					pending.incrementAndGet();
+					try {
+						second = startAttempt(func, t, policy, executor, result, pending, false);
+					} catch (RejectedExecutionException rejected) {
+						pending.decrementAndGet();
+					}
+				}
+			}
+			return result.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		} finally {
+			// 第一次执行被对冲或者超时取消时，记录它已经执行的时间，否则被截掉的慢调用永远不会进入样本，百分位数会越来越小
+			if (first.cancel(true)) {
+				policy.record(System.nanoTime() - start);
+			}
+			if (second != null) {
+				second.cancel(true);
+			}
+		}
+	}
+	
+	/**
+	 * 提交一次执行，成功时完成result，所有已发起的执行都失败时以最后一次的异常完成result
+	 * 只有第一次执行的耗时会作为样本，对冲执行从延迟之后才开始，耗时偏小
+	 */
+	private static <T, R> FutureTask<R> startAttempt(Function1<T, R> func, T t, HedgePolicy policy, Executor executor,
+													 CompletableFuture<R> result, AtomicInteger pending, boolean sample) {
+		long start = System.nanoTime();
+		FutureTask<R> task = new FutureTask<R>(() -> func.apply(t)) {
+			@Override
+			protected void done() {
+				if (isCancelled()) {
+					return;
+				}
+				try {
+					R value = get();
+					if (sample) {
+						policy.record(System.nanoTime() - start);
+					}
+					result.complete(value);
+				} catch (ExecutionException e) {
+					if (pending.decrementAndGet() == 0) {
+						result.completeExceptionally(e.getCause());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		executor.execute(task);
+		return task;
+	}
+	
+	/**
+	 * 按照重试策略执行func，所有重试都失败后使用consumer进行信息处理，最终返回Option<R>
+	 * 重试之间会阻塞当前线程等待，不希望阻塞调用线程时使用{@link #objFnRetryAsync}
+	 * @param func
+	 * @param policy
+	 * @param cn
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, Option<R>> objFnRetry(Function1<T, R> func, RetryPolicy policy, BiConsumer<T, Throwable> cn) {
+		return t -> {
+			for (int attempt = 1; ; attempt++) {
+				try {
+					return Option.some(func.apply(t));
+				} catch (Throwable throwable) {
+					rethrowIfFatal(throwable);
+					if (!policy.shouldRetry(attempt, throwable) || !sleep(policy.delayNanos(attempt))) {
+						cn.accept(t, throwable);
+						return Option.none();
+					}
+				}
+			}
+		};
+	}
+	
+	/**
+	 * 按照重试策略异步执行func，每次执行都提交到默认执行器，重试的等待由scheduler调度，不会阻塞任何线程
+	 * 所有重试都失败后使用consumer进行信息处理，future的结果为none
+	 * @param func
+	 * @param policy
+	 * @param cn
+	 * @param scheduler
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, CompletableFuture<Option<R>>> objFnRetryAsync(Function1<T, R> func, RetryPolicy policy, BiConsumer<T, Throwable> cn,
+																				   ScheduledExecutorService scheduler) {
+		return objFnRetryAsync(func, policy, cn, scheduler, ExecutorUtil.defaultExecutor());
+	}
+	
+	/**
+	 * 按照重试策略异步执行func，每次执行都提交到executor，重试的等待由scheduler调度，不会阻塞任何线程
+	 * 所有重试都失败后使用consumer进行信息处理，future的结果为none；future被取消后不会再发起重试
+	 * @param func
+	 * @param policy
+	 * @param cn
+	 * @param scheduler
+	 * @param executor
+	 * @return
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static <T, R> Function1<T, CompletableFuture<Option<R>>> objFnRetryAsync(Function1<T, R> func, RetryPolicy policy, BiConsumer<T, Throwable> cn,
+																				   ScheduledExecutorService scheduler, Executor executor) {
+		return t -> {
+			CompletableFuture<Option<R>> result = new CompletableFuture<>();
+			attemptAsync(func, policy, cn, scheduler, executor, t, 1, result);
+			return result;
+		};
+	}
+	
+	private static <T, R> void attemptAsync(Function1<T, R> func, RetryPolicy policy, BiConsumer<T, Throwable> cn, ScheduledExecutorService scheduler,
+											Executor executor, T t, int attempt, CompletableFuture<Option<R>> result) {
+		Runnable task = () -> {
+			if (result.isDone()) {
+				return;
+			}
+			try {
+				result.complete(Option.some(func.apply(t)));
+			} catch (Throwable throwable) {
+				if (isFatal(throwable)) {
+					result.completeExceptionally(throwable);
+				} else if (policy.shouldRetry(attempt, throwable)) {
+					scheduler.schedule(() -> attemptAsync(func, policy, cn, scheduler, executor, t, attempt + 1, result),
+									   policy.delayNanos(attempt), TimeUnit.NANOSECONDS);
+				} else {
+					cn.accept(t, throwable);
+					result.complete(Option.none());
+				}
+			}
+		};
+		try {
+			executor.execute(() -> {
+				try {
+					task.run();
+				} catch (Throwable throwable) {
+					result.completeExceptionally(throwable);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			result.completeExceptionally(e);
+		}
+	}
+	
+	private static boolean sleep(long nanos) {
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
 	}
 	
 	/**
@@ -142,5 +543,23 @@ public class TryUtil {
 		throw e;
 	}
 	
+	/**
+	 * 与{@link Try}保持一致，致命异常不会被捕获处理，而是直接抛出，其他工具类捕获Throwable时也使用这里的判断
+	 * @param throwable
+	 */
+	@SneakyThrows
+	static void rethrowIfFatal(Throwable throwable) {
+		if (isFatal(throwable)) {
+			throw throwable;
+		}
+	}
+	
+	private static boolean isFatal(Throwable throwable) {
+		return throwable instanceof InterruptedException
+				|| throwable instanceof LinkageError
+				|| throwable instanceof ThreadDeath
+				|| throwable instanceof VirtualMachineError;
+	}
+	
 	
 }
\ No newline at end of file
@@ -0,0 +1,350 @@
+package com.kgyhkgyh.fp.util;
+
+import io.vavr.Function1;
+import io.vavr.Function2;
+import io.vavr.Function3;
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+import io.vavr.Tuple3;
+import io.vavr.control.Option;
+import io.vavr.control.Try;
+import lombok.SneakyThrows;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * 基于{@link TupleUtil}分拆/映射/合并模型的DAG执行器
+ * 每个节点对同一个入参只执行一次，被多个分支依赖的节点结果会被复用，互不依赖的节点在执行器上并发执行
+ * Demo:
+ * TupleDag<Order> dag = new TupleDag<>();
+ * TupleDag.Node<Order, User> user = dag.source("user", order -> userService.get(order.getUserId()));
+ * TupleDag.Node<Order, Shop> shop = dag.source("shop", order -> shopService.get(order.getShopId()));
+ * TupleDag.Node<Order, Level> level = dag.map("level", user, levelService::get);
+ * TupleDag.Node<Order, View> view = dag.merge("view", user, shop, level, View::new);
+ * Function<Order, Option<View>> viewFn = dag.toFn(view);
+ *
+ * 这段代码的意义：
+ *                  order
+ *              /           \
+ *           user           shop
+ *          /    \            |
+ *      level     \           |
+ *          \      |         /
+ *                view
+ * user只会执行一次，并同时提供给level与view使用；user与shop并发执行
+ *
+ * 节点的语义与{@link TupleUtil#tupleMap}、{@link TupleUtil#tupleMerge}一致：
+ * 节点函数抛出异常或者返回null时结果为none，依赖的节点为none时该节点不会执行，结果同样为none
+ * 节点只能依赖已经创建的节点，因此天然无环
+ * 与{@link Try}一致，节点中抛出的致命异常（如{@link OutOfMemoryError}）不会变成none，执行器拒绝任务时同样无法得到结果，
+ * 这两种情况下生成的函数会原样抛出该异常，而不是包装在{@link CompletionException}中
+ *
+ * @author kgyhkgyh
+ * @version TupleDag.java, v 0.1 2023年09月26日 15:40 kgyhkgyh
+ */
+public final class TupleDag<T> {
+
+	private final List<Node<T, ?>> nodes = new ArrayList<>();
+
+	/**
+	 * 创建直接依赖入参的节点
+	 *
+	 * @param name
+	 * @param fn
+	 * @param <R>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <R> Node<T, R> source(String name, Function1<T, R> fn) {
+		return addNode(name, new int[0], args -> fn.apply((T) args[0]));
+	}
+
+	/**
+	 * 创建依赖一个节点的映射节点
+	 *
+	 * @param name
+	 * @param parent
+	 * @param fn
+	 * @param <U>
+	 * @param <R>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <U, R> Node<T, R> map(String name, Node<T, U> parent, Function1<U, R> fn) {
+		return addNode(name, ids(parent), args -> fn.apply((U) args[1]));
+	}
+
+	/**
+	 * 创建合并两个节点的节点，与{@link TupleUtil#tupleMerge(Function2)}对应
+	 *
+	 * @param name
+	 * @param node1
+	 * @param node2
+	 * @param fn
+	 * @param <U1>
+	 * @param <U2>
+	 * @param <R>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <U1, U2, R> Node<T, R> merge(String name, Node<T, U1> node1, Node<T, U2> node2, Function2<U1, U2, R> fn) {
+		return addNode(name, ids(node1, node2), args -> fn.apply((U1) args[1], (U2) args[2]));
+	}
+
+	/**
+	 * 创建合并三个节点的节点，与{@link TupleUtil#tupleMerge(Function3)}对应
+	 *
+	 * @param name
+	 * @param node1
+	 * @param node2
+	 * @param node3
+	 * @param fn
+	 * @param <U1>
+	 * @param <U2>
+	 * @param <U3>
+	 * @param <R>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <U1, U2, U3, R> Node<T, R> merge(String name, Node<T, U1> node1, Node<T, U2> node2, Node<T, U3> node3, Function3<U1, U2, U3, R> fn) {
+		return addNode(name, ids(node1, node2, node3), args -> fn.apply((U1) args[1], (U2) args[2], (U3) args[3]));
+	}
+
+	/**
+	 * 生成计算目标节点的函数，使用默认执行器
+	 *
+	 * @param target
+	 * @param <R>
+	 * @return
+	 */
+	public <R> Function<T, Option<R>> toFn(Node<T, R> target) {
+		return toFn(target, ExecutorUtil.defaultExecutor());
+	}
+
+	/**
+	 * 生成计算目标节点的函数，使用指定的执行器
+	 *
+	 * @param target
+	 * @param executor
+	 * @param <R>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <R> Function<T, Option<R>> toFn(Node<T, R> target, Executor executor) {
+		Plan<T> plan = plan(target);
+		return t -> (Option<R>) await(plan.run(t, executor)[target.id]);
+	}
+
+	/**
+	 * 生成同时计算两个节点的函数，结果为{@link TupleUtil}中的安全{@link Tuple2}，共同依赖的节点只执行一次
+	 *
+	 * @param node1
+	 * @param node2
+	 * @param <R1>
+	 * @param <R2>
+	 * @return
+	 */
+	public <R1, R2> Function<T, Tuple2<Option<R1>, Option<R2>>> toTupleFn(Node<T, R1> node1, Node<T, R2> node2) {
+		return toTupleFn(node1, node2, ExecutorUtil.defaultExecutor());
+	}
+
+	/**
+	 * 生成同时计算两个节点的函数，使用指定的执行器
+	 *
+	 * @param node1
+	 * @param node2
+	 * @param executor
+	 * @param <R1>
+	 * @param <R2>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <R1, R2> Function<T, Tuple2<Option<R1>, Option<R2>>> toTupleFn(Node<T, R1> node1, Node<T, R2> node2, Executor executor) {
+		Plan<T> plan = plan(node1, node2);
+		return t -> {
+			CompletableFuture<?>[] results = plan.run(t, executor);
+			return Tuple.of((Option<R1>) await(results[node1.id]), (Option<R2>) await(results[node2.id]));
+		};
+	}
+
+	/**
+	 * 生成同时计算三个节点的函数，结果为{@link TupleUtil}中的安全{@link Tuple3}，共同依赖的节点只执行一次
+	 *
+	 * @param node1
+	 * @param node2
+	 * @param node3
+	 * @param <R1>
+	 * @param <R2>
+	 * @param <R3>
+	 * @return
+	 */
+	public <R1, R2, R3> Function<T, Tuple3<Option<R1>, Option<R2>, Option<R3>>> toTupleFn(Node<T, R1> node1, Node<T, R2> node2, Node<T, R3> node3) {
+		return toTupleFn(node1, node2, node3, ExecutorUtil.defaultExecutor());
+	}
+
+	/**
+	 * 生成同时计算三个节点的函数，使用指定的执行器
+	 *
+	 * @param node1
+	 * @param node2
+	 * @param node3
+	 * @param executor
+	 * @param <R1>
+	 * @param <R2>
+	 * @param <R3>
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public <R1, R2, R3> Function<T, Tuple3<Option<R1>, Option<R2>, Option<R3>>> toTupleFn(Node<T, R1> node1, Node<T, R2> node2, Node<T, R3> node3, Executor executor) {
+		Plan<T> plan = plan(node1, node2, node3);
+		return t -> {
+			CompletableFuture<?>[] results = plan.run(t, executor);
+			return Tuple.of((Option<R1>) await(results[node1.id]), (Option<R2>) await(results[node2.id]), (Option<R3>) await(results[node3.id]));
+		};
+	}
+
+	private <R> Node<T, R> addNode(String name, int[] parents, Function1<Object[], Object> fn) {
+		Node<T, R> node = new Node<>(this, nodes.size(), name, parents, fn);
+		nodes.add(node);
+		return node;
+	}
+
+	@SafeVarargs
+	private final int[] ids(Node<T, ?>... parents) {
+		int[] ids = new int[parents.length];
+		for (int i = 0; i < parents.length; i++) {
+			ids[i] = checkOwner(parents[i]).id;
+		}
+		return ids;
+	}
+
+	private Node<T, ?> checkOwner(Node<T, ?> node) {
+		if (node.dag != this) {
+			throw new IllegalArgumentException("node " + node.name + " does not belong to this dag");
+		}
+		return node;
+	}
+
+	/**
+	 * 计算目标节点需要的所有节点，节点id即拓扑序
+	 */
+	@SafeVarargs
+	private final synchronized Plan<T> plan(Node<T, ?>... targets) {
+		BitSet required = new BitSet();
+		for (Node<T, ?> target : targets) {
+			required.set(checkOwner(target).id);
+		}
+		for (int id = required.length() - 1; id >= 0; id--) {
+			if (required.get(id)) {
+				for (int parent : nodes.get(id).parents) {
+					required.set(parent);
+				}
+			}
+		}
+		List<Node<T, ?>> snapshot = new ArrayList<>(nodes.subList(0, required.length()));
+		return new Plan<>(snapshot, required);
+	}
+
+	/**
+	 * DAG中的节点
+	 *
+	 * @param <T>
+	 * @param <R>
+	 */
+	public static final class Node<T, R> {
+
+		private final TupleDag<T> dag;
+
+		private final int id;
+
+		private final String name;
+
+		private final int[] parents;
+
+		private final Function1<Object[], Object> fn;
+
+		private Node(TupleDag<T> dag, int id, String name, int[] parents, Function1<Object[], Object> fn) {
+			this.dag = dag;
+			this.id = id;
+			this.name = name;
+			this.parents = parents;
+			this.fn = fn;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public String toString() {
+			return "Node(" + name + ")";
+		}
+	}
+
+	@SneakyThrows
+	private static Object await(CompletableFuture<?> future) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			throw e.getCause() != null ? e.getCause() : e;
+		}
+	}
+
+	private static final class Plan<T> {
+
+		private final List<Node<T, ?>> nodes;
+
+		private final BitSet required;
+
+		private Plan(List<Node<T, ?>> nodes, BitSet required) {
+			this.nodes = nodes;
+			this.required = required;
+		}
+
+		private CompletableFuture<?>[] run(T t, Executor executor) {
+			CompletableFuture<?>[] results = new CompletableFuture<?>[nodes.size()];
+			for (int id = required.nextSetBit(0); id >= 0; id = required.nextSetBit(id + 1)) {
+				Node<T, ?> node = nodes.get(id);
+				results[id] = schedule(node, results, t, executor);
+			}
+			return results;
+		}
+
+		private CompletableFuture<Option<Object>> schedule(Node<T, ?> node, CompletableFuture<?>[] results, T t, Executor executor) {
+			if (t == null) {
+				return CompletableFuture.completedFuture(Option.none());
+			}
+			CompletableFuture<?>[] parentFutures = new CompletableFuture<?>[node.parents.length];
+			for (int i = 0; i < node.parents.length; i++) {
+				parentFutures[i] = results[node.parents[i]];
+			}
+			return CompletableFuture.allOf(parentFutures)
+									.thenApplyAsync(neverMind -> evaluate(node, results, t), executor);
+		}
+
+		private Option<Object> evaluate(Node<T, ?> node, CompletableFuture<?>[] results, T t) {
+			Object[] args = new Object[node.parents.length + 1];
+			args[0] = t;
+			for (int i = 0; i < node.parents.length; i++) {
+				Option<Object> parent = result(results, node.parents[i]);
+				if (parent.isEmpty()) {
+					return Option.none();
+				}
+				args[i + 1] = parent.get();
+			}
+			return Try.of(() -> node.fn.apply(args)).toOption().flatMap(Option::of);
+		}
+
+		@SuppressWarnings("unchecked")
+		private static Option<Object> result(CompletableFuture<?>[] results, int id) {
+			return (Option<Object>) await(results[id]);
+		}
+	}
+
+}
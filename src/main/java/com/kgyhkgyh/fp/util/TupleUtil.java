@@ -3,6 +3,9 @@ package com.kgyhkgyh.fp.util;
 import io.vavr.*;
 import io.vavr.control.Option;
 
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -135,6 +138,181 @@ public class TupleUtil {
 		};
 	}
 	
+	/**
+	 * 将一个值分拆为{@link Tuple2}，两个分支在默认执行器上并发执行，并使用{@link Option}进行保护
+	 * 执行失败的分支返回none，返回null的分支与{@link #toTuple}一致为Some(null)
+	 * java 21以下默认执行器为公共ForkJoinPool，分支是远程调用这类阻塞操作时应当使用toTupleAsyncOn并传入专门的线程池，参见{@link ExecutorUtil}
+	 * @param leftFn
+	 * @param rightFn
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 * @return
+	 */
+	public static <T, R1, R2> Function<T, Tuple2<Option<R1>, Option<R2>>> toTupleAsync(Function1<T, R1> leftFn, Function1<T, R2> rightFn) {
+		return toTupleAsyncOn(leftFn, rightFn, ExecutorUtil.defaultExecutor());
+	}
+	
+	/**
+	 * 将一个值分拆为{@link Tuple2}，两个分支在指定的执行器上并发执行，并使用{@link Option}进行保护
+	 * 执行失败的分支返回none，返回null的分支与{@link #toTuple}一致为Some(null)
+	 * @param leftFn
+	 * @param rightFn
+	 * @param executor
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 * @return
+	 */
+	public static <T, R1, R2> Function<T, Tuple2<Option<R1>, Option<R2>>> toTupleAsyncOn(Function1<T, R1> leftFn, Function1<T, R2> rightFn, Executor executor) {
+		return t -> {
+			if (t == null) {
+				return Tuple.of(Option.none(), Option.none());
+			}
+			FutureTask<R1> leftFuture = ExecutorUtil.execute(() -> leftFn.apply(t), executor);
+			FutureTask<R2> rightFuture = ExecutorUtil.execute(() -> rightFn.apply(t), executor);
+			return Tuple.of(ExecutorUtil.awaitOption(leftFuture), ExecutorUtil.awaitOption(rightFuture));
+		};
+	}
+	
+	/**
+	 * 将一个值分拆为{@link Tuple2}，两个分支在指定的执行器上并发执行，并使用{@link Option}进行保护
+	 * 两个分支使用相同的超时时间，参见{@link #toTupleAsyncOn(Function1, Function1, Executor, Duration, Duration)}
+	 * @param leftFn
+	 * @param rightFn
+	 * @param executor
+	 * @param timeout
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 * @return
+	 */
+	public static <T, R1, R2> Function<T, Tuple2<Option<R1>, Option<R2>>> toTupleAsyncOn(Function1<T, R1> leftFn, Function1<T, R2> rightFn, Executor executor, Duration timeout) {
+		return toTupleAsyncOn(leftFn, rightFn, executor, timeout, timeout);
+	}
+	
+	/**
+	 * 将一个值分拆为{@link Tuple2}，两个分支在指定的执行器上并发执行，并使用{@link Option}进行保护
+	 * 每个分支最多等待各自的超时时间（从分拆开始计时），执行失败或者超时的分支返回none，返回null的分支为Some(null)，超时的分支会被中断，不会继续占用执行器的线程
+	 * @param leftFn
+	 * @param rightFn
+	 * @param executor
+	 * @param leftTimeout
+	 * @param rightTimeout
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 * @return
+	 */
+	public static <T, R1, R2> Function<T, Tuple2<Option<R1>, Option<R2>>> toTupleAsyncOn(Function1<T, R1> leftFn, Function1<T, R2> rightFn, Executor executor,
+																						 Duration leftTimeout, Duration rightTimeout) {
+		long leftNanos = leftTimeout.toNanos();
+		long rightNanos = rightTimeout.toNanos();
+		return t -> {
+			if (t == null) {
+				return Tuple.of(Option.none(), Option.none());
+			}
+			long start = System.nanoTime();
+			FutureTask<R1> leftFuture = ExecutorUtil.execute(() -> leftFn.apply(t), executor);
+			FutureTask<R2> rightFuture = ExecutorUtil.execute(() -> rightFn.apply(t), executor);
+			return Tuple.of(ExecutorUtil.awaitOption(leftFuture, start + leftNanos), ExecutorUtil.awaitOption(rightFuture, start + rightNanos));
+		};
+	}
+	
+	/**
+	 * 将一个值分拆为{@link Tuple3}，三个分支在默认执行器上并发执行，并使用{@link Option}进行保护
+	 * 执行失败的分支返回none，返回null的分支与{@link #toTuple}一致为Some(null)
+	 * java 21以下默认执行器为公共ForkJoinPool，分支是远程调用这类阻塞操作时应当使用toTupleAsyncOn并传入专门的线程池，参见{@link ExecutorUtil}
+	 * @param fn1
+	 * @param fn2
+	 * @param fn3
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 * @param <R3>
+	 * @return
+	 */
+	public static <T, R1, R2, R3> Function<T, Tuple3<Option<R1>, Option<R2>, Option<R3>>> toTupleAsync(Function1<T, R1> fn1, Function1<T, R2> fn2, Function1<T, R3> fn3) {
+		return toTupleAsyncOn(fn1, fn2, fn3, ExecutorUtil.defaultExecutor());
+	}
+	
+	/**
+	 * 将一个值分拆为{@link Tuple3}，三个分支在指定的执行器上并发执行，并使用{@link Option}进行保护
+	 * 执行失败的分支返回none，返回null的分支与{@link #toTuple}一致为Some(null)
+	 * @param fn1
+	 * @param fn2
+	 * @param fn3
+	 * @param executor
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 * @param <R3>
+	 * @return
+	 */
+	public static <T, R1, R2, R3> Function<T, Tuple3<Option<R1>, Option<R2>, Option<R3>>> toTupleAsyncOn(Function1<T, R1> fn1, Function1<T, R2> fn2, Function1<T, R3> fn3, Executor executor) {
+		return t -> {
+			if (t == null) {
+				return Tuple.of(Option.none(), Option.none(), Option.none());
+			}
+			FutureTask<R1> future1 = ExecutorUtil.execute(() -> fn1.apply(t), executor);
+			FutureTask<R2> future2 = ExecutorUtil.execute(() -> fn2.apply(t), executor);
+			FutureTask<R3> future3 = ExecutorUtil.execute(() -> fn3.apply(t), executor);
+			return Tuple.of(ExecutorUtil.awaitOption(future1), ExecutorUtil.awaitOption(future2), ExecutorUtil.awaitOption(future3));
+		};
+	}
+	
+	/**
+	 * 将一个值分拆为{@link Tuple3}，三个分支在指定的执行器上并发执行，并使用{@link Option}进行保护
+	 * 三个分支使用相同的超时时间，参见{@link #toTupleAsyncOn(Function1, Function1, Function1, Executor, Duration, Duration, Duration)}
+	 * @param fn1
+	 * @param fn2
+	 * @param fn3
+	 * @param executor
+	 * @param timeout
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 * @param <R3>
+	 * @return
+	 */
+	public static <T, R1, R2, R3> Function<T, Tuple3<Option<R1>, Option<R2>, Option<R3>>> toTupleAsyncOn(Function1<T, R1> fn1, Function1<T, R2> fn2, Function1<T, R3> fn3, Executor executor, Duration timeout) {
+		return toTupleAsyncOn(fn1, fn2, fn3, executor, timeout, timeout, timeout);
+	}
+	
+	/**
+	 * 将一个值分拆为{@link Tuple3}，三个分支在指定的执行器上并发执行，并使用{@link Option}进行保护
+	 * 每个分支最多等待各自的超时时间（从分拆开始计时），执行失败或者超时的分支返回none，返回null的分支为Some(null)，超时的分支会被中断，不会继续占用执行器的线程
+	 * @param fn1
+	 * @param fn2
+	 * @param fn3
+	 * @param executor
+	 * @param timeout1
+	 * @param timeout2
+	 * @param timeout3
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 * @param <R3>
+	 * @return
+	 */
+	public static <T, R1, R2, R3> Function<T, Tuple3<Option<R1>, Option<R2>, Option<R3>>> toTupleAsyncOn(Function1<T, R1> fn1, Function1<T, R2> fn2, Function1<T, R3> fn3, Executor executor,
+																										  Duration timeout1, Duration timeout2, Duration timeout3) {
+		long nanos1 = timeout1.toNanos();
+		long nanos2 = timeout2.toNanos();
+		long nanos3 = timeout3.toNanos();
+		return t -> {
+			if (t == null) {
+				return Tuple.of(Option.none(), Option.none(), Option.none());
+			}
+			long start = System.nanoTime();
+			FutureTask<R1> future1 = ExecutorUtil.execute(() -> fn1.apply(t), executor);
+			FutureTask<R2> future2 = ExecutorUtil.execute(() -> fn2.apply(t), executor);
+			FutureTask<R3> future3 = ExecutorUtil.execute(() -> fn3.apply(t), executor);
+			return Tuple.of(ExecutorUtil.awaitOption(future1, start + nanos1), ExecutorUtil.awaitOption(future2, start + nanos2),
+							ExecutorUtil.awaitOption(future3, start + nanos3));
+		};
+	}
+	
 	/**
 	 * 将一个值分拆为{@link Tuple2}
 	 * @param leftFn
@@ -315,4 +493,109 @@ public class TupleUtil {
 		return tuple -> fn.apply(tuple._1, tuple._2, tuple._3);
 	}
 
+	/**
+	 * 将一个值分拆为{@link SafeTuple2}，不为每个元素分配{@link Option}
+	 * @param leftFn
+	 * @param rightFn
+	 * @return
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 */
+	public static <T, R1, R2> Function1<T, SafeTuple2<R1, R2>> toSafeTuple(Function1<T, R1> leftFn, Function1<T, R2> rightFn) {
+		return SafeTuple2.split(leftFn, rightFn);
+	}
+	
+	/**
+	 * 将一个值分拆为{@link SafeTuple3}，不为每个元素分配{@link Option}
+	 * @param fn1
+	 * @param fn2
+	 * @param fn3
+	 * @return
+	 * @param <T>
+	 * @param <R1>
+	 * @param <R2>
+	 * @param <R3>
+	 */
+	public static <T, R1, R2, R3> Function1<T, SafeTuple3<R1, R2, R3>> toSafeTuple(Function1<T, R1> fn1, Function1<T, R2> fn2, Function1<T, R3> fn3) {
+		return SafeTuple3.split(fn1, fn2, fn3);
+	}
+	
+	/**
+	 * 对{@link SafeTuple2}进行左右映射，语义与{@link #tupleMap(Function1, Function1)}一致
+	 * @param leftFn
+	 * @param rightFn
+	 * @return
+	 * @param <T1>
+	 * @param <T2>
+	 * @param <R1>
+	 * @param <R2>
+	 */
+	public static <T1, T2, R1, R2> Function1<SafeTuple2<T1, T2>, SafeTuple2<R1, R2>> safeTupleMap(Function1<T1, R1> leftFn, Function1<T2, R2> rightFn) {
+		return tuple -> tuple.map(leftFn, rightFn);
+	}
+	
+	/**
+	 * 对{@link SafeTuple3}进行映射，语义与{@link #tupleMap(Function1, Function1, Function1)}一致
+	 * @param fn1
+	 * @param fn2
+	 * @param fn3
+	 * @return
+	 * @param <T1>
+	 * @param <T2>
+	 * @param <T3>
+	 * @param <R1>
+	 * @param <R2>
+	 * @param <R3>
+	 */
+	public static <T1, T2, T3, R1, R2, R3> Function1<SafeTuple3<T1, T2, T3>, SafeTuple3<R1, R2, R3>> safeTupleMap(Function1<T1, R1> fn1, Function1<T2, R2> fn2, Function1<T3, R3> fn3) {
+		return tuple -> tuple.map(fn1, fn2, fn3);
+	}
+	
+	/**
+	 * 合并{@link SafeTuple2}，语义与{@link #tupleMerge(Function2)}一致
+	 * @param fn
+	 * @return
+	 * @param <T1>
+	 * @param <T2>
+	 * @param <R>
+	 */
+	public static <T1, T2, R> Function1<SafeTuple2<T1, T2>, Option<R>> safeTupleMerge(Function2<T1, T2, R> fn) {
+		return tuple -> tuple == null ? Option.none() : tuple.merge(fn);
+	}
+	
+	/**
+	 * 合并{@link SafeTuple3}，语义与{@link #tupleMerge(Function3)}一致
+	 * @param fn
+	 * @return
+	 * @param <T1>
+	 * @param <T2>
+	 * @param <T3>
+	 * @param <R>
+	 */
+	public static <T1, T2, T3, R> Function1<SafeTuple3<T1, T2, T3>, Option<R>> safeTupleMerge(Function3<T1, T2, T3, R> fn) {
+		return tuple -> tuple == null ? Option.none() : tuple.merge(fn);
+	}
+	
+	/**
+	 * 检查{@link SafeTuple2}中的所有元素是否都存在
+	 * @return
+	 * @param <T1>
+	 * @param <T2>
+	 */
+	public static <T1, T2> Predicate<SafeTuple2<T1, T2>> allPresent() {
+		return tuple -> tuple != null && tuple.isAllPresent();
+	}
+	
+	/**
+	 * 检查{@link SafeTuple3}中的所有元素是否都存在
+	 * @return
+	 * @param <T1>
+	 * @param <T2>
+	 * @param <T3>
+	 */
+	public static <T1, T2, T3> Predicate<SafeTuple3<T1, T2, T3>> all3Present() {
+		return tuple -> tuple != null && tuple.isAllPresent();
+	}
+
 }